@@ -0,0 +1,72 @@
+package graph;
+
+import graph.TextGraph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// 建图：原始实现、流式、并行三种读文本的方式，以及冻结成紧凑图和读二进制快照
+// 每次调用都完整建一次图，用单次计时模式；100M 语料下原始实现需要很大的堆
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class IngestBenchmark {
+
+    @Param({"10000", "1000000", "100000000"})
+    public long tokens;
+
+    private String corpus;
+    private Graph graph;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = ZipfCorpus.get(tokens).toString();
+        graph = TextGraph.generateGraphFromFileParallel(corpus);
+        snapshot = Files.createTempFile("zipf-" + tokens, ".tgs");
+        snapshot.toFile().deleteOnExit();
+        GraphSnapshot.write(graph.compact(), snapshot);
+    }
+
+    @Benchmark
+    public Graph generateGraphFromFile() {
+        return TextGraph.generateGraphFromFile(corpus);
+    }
+
+    @Benchmark
+    public Graph generateGraphFromFileStreaming() {
+        return TextGraph.generateGraphFromFileStreaming(corpus);
+    }
+
+    @Benchmark
+    public Graph generateGraphFromFileParallel() {
+        return TextGraph.generateGraphFromFileParallel(corpus);
+    }
+
+    @Benchmark
+    public CompactGraph compact() {
+        return CompactGraph.from(graph);
+    }
+
+    @Benchmark
+    public CompactGraph readSnapshot() throws IOException {
+        return GraphSnapshot.read(snapshot);
+    }
+}
@@ -0,0 +1,161 @@
+package graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// 查询：枢纽词和叶子词上的桥接词，近距离和远距离单词对之间的最短路径（远距离另测双向搜索）
+// 每组预先挑好 PAIRS 对单词，每次调用轮换到下一对，避免只测到一种形状的输入
+// 规模与 IngestBenchmark 相同；100M 语料建图时中间的 Graph 需要很大的堆
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class QueryBenchmark {
+    private static final int PAIRS = 64;
+
+    @Param({"10000", "1000000", "100000000"})
+    public long tokens;
+
+    private CompactGraph graph;
+    private String[][] hubPairs;
+    private String[][] leafPairs;
+    private String[][] nearPairs;
+    private String[][] farPairs;
+
+    // 每个线程各自的轮换位置
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String[] next(String[][] pairs) {
+            return pairs[next++ & (PAIRS - 1)];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        graph = TextGraph.loadGraph(ZipfCorpus.get(tokens).toString());
+        int n = graph.nodeCount();
+        SplittableRandom random = new SplittableRandom(1);
+
+        // 出度最高的一批词是枢纽，出度为 1 的是叶子
+        Integer[] byDegree = new Integer[n];
+        for (int u = 0; u < n; u++) {
+            byDegree[u] = u;
+        }
+        Arrays.sort(byDegree, (a, b) -> Integer.compare(degree(b), degree(a)));
+        int hubs = Math.max(2, Math.min(32, n / 100));
+        int leaves = 0;
+        while (leaves < n && degree(byDegree[n - 1 - leaves]) <= 1) {
+            leaves++;
+        }
+        leaves = Math.max(2, leaves);
+
+        hubPairs = new String[PAIRS][];
+        leafPairs = new String[PAIRS][];
+        nearPairs = new String[PAIRS][];
+        farPairs = new String[PAIRS][];
+        int[] hops = new int[n];
+        for (int i = 0; i < PAIRS; i++) {
+            hubPairs[i] = pair(byDegree[random.nextInt(hubs)], byDegree[random.nextInt(hubs)]);
+            leafPairs[i] = pair(byDegree[n - 1 - random.nextInt(leaves)], byDegree[n - 1 - random.nextInt(leaves)]);
+
+            // 近：两跳可达的词；远：从起点出发跳数最多的词
+            int source = byDegree[random.nextInt(hubs)];
+            int far = hopsFrom(source, hops);
+            int near = source;
+            for (int v = 0; v < n; v++) {
+                if (hops[v] == 2) {
+                    near = v;
+                    break;
+                }
+            }
+            nearPairs[i] = pair(source, near);
+            farPairs[i] = pair(source, far);
+        }
+    }
+
+    // 点对点查询本身不读写最短路树缓存；每轮迭代前仍清空共享缓存，
+    // 保证计时的是搜索本身，不受同一进程里其他查询留下的树影响
+    @Setup(Level.Iteration)
+    public void clearCache() {
+        ShortestPathCache.SHARED.clear();
+    }
+
+    private int degree(int u) {
+        return graph.edgeEnd(u) - graph.edgeStart(u);
+    }
+
+    private String[] pair(int u, int v) {
+        return new String[] {graph.word(u), graph.word(v)};
+    }
+
+    // 按跳数做广度优先搜索，hops 里不可达的为 -1，返回跳数最多的结点
+    private int hopsFrom(int source, int[] hops) {
+        Arrays.fill(hops, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        hops[source] = 0;
+        queue.add(source);
+        int last = source;
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            last = u;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                if (hops[v] < 0) {
+                    hops[v] = hops[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+        return last;
+    }
+
+    @Benchmark
+    public String queryBridgeWordsHub(Cursor cursor) {
+        String[] pair = cursor.next(hubPairs);
+        return TextGraph.queryBridgeWords(graph, pair[0], pair[1], false);
+    }
+
+    @Benchmark
+    public String queryBridgeWordsLeaf(Cursor cursor) {
+        String[] pair = cursor.next(leafPairs);
+        return TextGraph.queryBridgeWords(graph, pair[0], pair[1], false);
+    }
+
+    @Benchmark
+    public String calcShortestPathNear(Cursor cursor) {
+        String[] pair = cursor.next(nearPairs);
+        return TextGraph.calcShortestPath(graph, pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public String calcShortestPathFar(Cursor cursor) {
+        String[] pair = cursor.next(farPairs);
+        return TextGraph.calcShortestPath(graph, pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public String calcShortestPathFarBidirectional(Cursor cursor) {
+        String[] pair = cursor.next(farPairs);
+        return TextGraph.calcShortestPath(graph, pair[0], pair[1], ShortestPathEngine.Mode.BIDIRECTIONAL);
+    }
+}
@@ -0,0 +1,74 @@
+package graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// 随机游走每一步的吞吐量：走到没有可走的边时从随机结点重新开始
+// 规模与 IngestBenchmark 相同；100M 语料建图时中间的 Graph 需要很大的堆
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class WalkBenchmark {
+    private static final int STEPS = 1024;
+
+    @Param({"10000", "1000000", "100000000"})
+    public long tokens;
+
+    private WalkEngine engine;
+
+    // 每个线程一个 Walker 和随机数发生器
+    @State(Scope.Thread)
+    public static class Walk {
+        WalkEngine.Walker walker;
+        SplittableRandom random = new SplittableRandom(7);
+        int current;
+
+        @Setup(Level.Trial)
+        public void setUp(WalkBenchmark benchmark) {
+            walker = benchmark.engine.walker();
+            walker.start();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CompactGraph graph = TextGraph.loadGraph(ZipfCorpus.get(tokens).toString());
+        engine = graph.walkEngine();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public int step(Walk walk) {
+        CompactGraph graph = engine.graph();
+        int current = walk.current;
+        for (int i = 0; i < STEPS; i++) {
+            int e = walk.walker.step(current, walk.random);
+            if (e < 0) {
+                walk.walker.start();
+                current = walk.random.nextInt(graph.nodeCount());
+            } else {
+                current = graph.target(e);
+            }
+        }
+        walk.current = current;
+        return current;
+    }
+}
@@ -0,0 +1,72 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// 合成语料：单词按 Zipf 分布（指数 1）抽取，少数高频词成为枢纽结点，大量低频词是叶子
+// 同样的 token 数总是生成同样的文件，生成一次后缓存在 target/corpus 下
+final class ZipfCorpus {
+    private static final Path DIRECTORY = Paths.get("target", "corpus");
+    private static final long SEED = 20210800L;
+    private static final int WORDS_PER_LINE = 12;
+
+    private ZipfCorpus() {
+    }
+
+    // 含 tokens 个单词的语料文件，不存在时生成
+    static Path get(long tokens) throws IOException {
+        Path file = DIRECTORY.resolve("zipf-" + tokens + ".txt");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(DIRECTORY);
+        // 先写临时文件再改名，中途中断不会留下不完整的语料
+        Path partial = DIRECTORY.resolve("zipf-" + tokens + ".txt.partial");
+        write(partial, tokens, vocabularySize(tokens), SEED);
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    // 词表大小随语料增长而变慢（Heaps 定律），10k -> 5k，1M -> 50k，100M -> 500k
+    static int vocabularySize(long tokens) {
+        return (int) Math.max(1000, Math.min(1_000_000, 50 * Math.sqrt(tokens)));
+    }
+
+    static void write(Path file, long tokens, int vocabulary, long seed) throws IOException {
+        String[] words = new String[vocabulary];
+        double[] cumulative = new double[vocabulary];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary; rank++) {
+            words[rank] = word(rank);
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for (long i = 0; i < tokens; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                if (rank < 0) {
+                    rank = Math.min(-rank - 1, vocabulary - 1);
+                }
+                out.write(words[rank]);
+                out.write((i + 1) % WORDS_PER_LINE == 0 ? '\n' : ' ');
+            }
+        }
+    }
+
+    // 排名转成只含小写字母的单词：0 -> a，25 -> z，26 -> aa ...
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        for (int n = rank + 1; n > 0; n = (n - 1) / 26) {
+            word.append((char) ('a' + (n - 1) % 26));
+        }
+        return word.reverse().toString();
+    }
+}
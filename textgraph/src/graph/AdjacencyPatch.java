@@ -0,0 +1,135 @@
+package graph;
+
+import java.util.Arrays;
+
+// 增量更新时覆盖部分结点邻接表的补丁，本身不可变
+// 结点到补丁位置的索引按页写时复制，新版本只复制被改动的页；
+// 邻接表内容追加写在多个版本共享的存储末尾，旧版本只读自己长度以内的部分
+// 位置 loc 处存放邻接表长度，其后依次是各条边的 (编号, 权重)
+final class AdjacencyPatch {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int[][] NO_PAGES = new int[0][];
+
+    // 多个版本共享的追加存储
+    private static final class Storage {
+        int[] ids = new int[1024];
+        int[] weights = new int[1024];
+        int used;
+    }
+
+    // 每页保存 location + 1，0 或空页表示该结点没有补丁
+    private final int[][] pages;
+    private final Storage storage;
+    private final int[] ids;
+    private final int[] weights;
+    private final int length;
+
+    private AdjacencyPatch(int[][] pages, Storage storage, int length) {
+        this.pages = pages;
+        this.storage = storage;
+        this.ids = storage.ids;
+        this.weights = storage.weights;
+        this.length = length;
+    }
+
+    static AdjacencyPatch empty() {
+        return new AdjacencyPatch(NO_PAGES, new Storage(), 0);
+    }
+
+    // 结点 u 的补丁位置，没有补丁时返回 -1
+    int location(int u) {
+        int page = u >>> PAGE_BITS;
+        if (page >= pages.length || pages[page] == null) {
+            return -1;
+        }
+        return pages[page][u & (PAGE_SIZE - 1)] - 1;
+    }
+
+    int degree(int location) {
+        return ids[location];
+    }
+
+    int id(int i) {
+        return ids[i];
+    }
+
+    int weight(int i) {
+        return weights[i];
+    }
+
+    // 本版本看到的存储数组，下标与 id(i)、weight(i) 相同；合并时整段拷贝用，调用方不能修改
+    int[] ids() {
+        return ids;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    // 本版本使用的存储长度
+    int length() {
+        return length;
+    }
+
+    // 估算本版本能看到的部分占用的堆内存
+    long estimatedBytes() {
+        long bytes = 16 + 8L * pages.length + 8L * length;
+        for (int[] page : pages) {
+            if (page != null) {
+                bytes += 16 + 4L * PAGE_SIZE;
+            }
+        }
+        return bytes;
+    }
+
+    // 用新的邻接表覆盖 nodes 中的结点，返回新补丁；lists[k]、listWeights[k] 是 nodes[k] 的新邻接表
+    AdjacencyPatch with(int[] nodes, int[][] lists, int[][] listWeights) {
+        if (nodes.length == 0) {
+            return this;
+        }
+        Storage target;
+        synchronized (storage) {
+            if (storage.used == length) {
+                target = storage;
+            } else {
+                // 这个版本之后已经有别的版本追加过，复制一份再写，避免互相覆盖
+                target = new Storage();
+                target.ids = Arrays.copyOf(ids, Math.max(1024, length * 2));
+                target.weights = Arrays.copyOf(weights, target.ids.length);
+                target.used = length;
+            }
+            int needed = target.used;
+            for (int[] list : lists) {
+                needed += list.length + 1;
+            }
+            if (needed > target.ids.length) {
+                int capacity = Math.max(needed, target.ids.length * 2);
+                target.ids = Arrays.copyOf(target.ids, capacity);
+                target.weights = Arrays.copyOf(target.weights, capacity);
+            }
+            int maxNode = -1;
+            for (int node : nodes) {
+                maxNode = Math.max(maxNode, node);
+            }
+            int pageCount = Math.max(pages.length, (maxNode >>> PAGE_BITS) + 1);
+            int[][] newPages = Arrays.copyOf(pages, pageCount);
+            boolean[] copied = new boolean[pageCount];
+            int position = target.used;
+            for (int k = 0; k < nodes.length; k++) {
+                int page = nodes[k] >>> PAGE_BITS;
+                if (!copied[page]) {
+                    newPages[page] = newPages[page] == null ? new int[PAGE_SIZE] : newPages[page].clone();
+                    copied[page] = true;
+                }
+                newPages[page][nodes[k] & (PAGE_SIZE - 1)] = position + 1;
+                target.ids[position] = lists[k].length;
+                System.arraycopy(lists[k], 0, target.ids, position + 1, lists[k].length);
+                System.arraycopy(listWeights[k], 0, target.weights, position + 1, lists[k].length);
+                position += lists[k].length + 1;
+            }
+            target.used = position;
+            return new AdjacencyPatch(newPages, target, position);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package graph;
+
+import graph.TextGraph.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// 内存固定的近似建图：语料再大，占用的内存也只取决于预算
+// 流式扫一遍文本，每个相邻单词对计入 Count-Min 草图；草图估计次数达到 minCount 的单词对才进入高频表，
+// 高频表满时顶替计数最小的条目；最后只保留高频表里的边，每个单词至多保留 maxOutDegree 条权重最高的出边
+// 边权取高频表计数和草图估计中较小的一个，两者都只会偏大，偏差上界见 report()
+// 分词器的单词驻留表也有上限，超过后新单词不再驻留，也不建 String：哈希直接按字节算，
+// 上一个单词拷进一块复用的缓冲区，只有单词对要进高频表时才把两个单词建成 String
+final class ApproximateGraphBuilder {
+    static final int DEPTH = 4;
+    static final int DEFAULT_MIN_COUNT = 2;
+
+    private final CountMinSketch sketch;
+    private final HeavyHitters heavy;
+    private final int minCount;
+    private final int maxOutDegree;
+    private final long memoryBytes;
+    private final WordTokenizer tokenizer;
+    private boolean hasPrevious;
+    // 上一个单词，没驻留时为 null，内容在 previousBytes 里
+    private String previous;
+    private byte[] previousBytes = new byte[64];
+    private int previousLength;
+    private long previousHash;
+    private long tokens;
+    private int edges;
+    private int prunedByDegree;
+
+    // memoryBytes 一半给草图，一半给高频表；maxOutDegree 为 0 时不限制出边数
+    ApproximateGraphBuilder(long memoryBytes, int minCount, int maxOutDegree) {
+        this.memoryBytes = memoryBytes;
+        this.sketch = CountMinSketch.withBudget(memoryBytes / 2, DEPTH);
+        this.heavy = new HeavyHitters((int) Math.min(1 << 28, memoryBytes / 2 / HeavyHitters.BYTES_PER_ENTRY));
+        this.minCount = Math.max(1, minCount);
+        this.maxOutDegree = maxOutDegree;
+        this.tokenizer = new WordTokenizer(new WordTokenizer.TransientSink() {
+            @Override
+            public void word(String word) {
+                pair(word, null, 0, hash(word));
+            }
+
+            @Override
+            public void word(byte[] bytes, int length) {
+                pair(null, bytes, length, hash(bytes, length));
+            }
+        }, true, heavy.capacity());
+    }
+
+    static ApproximateGraphBuilder build(Path file, long memoryBytes, int minCount, int maxOutDegree)
+            throws IOException {
+        ApproximateGraphBuilder builder = new ApproximateGraphBuilder(memoryBytes, minCount, maxOutDegree);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                builder.feed(buffer);
+                buffer.clear();
+            }
+        }
+        return builder;
+    }
+
+    void feed(ByteBuffer buffer) {
+        tokenizer.feed(buffer);
+    }
+
+    // 单词是 word，或者 word 为 null 时是 bytes 的前 length 个字节
+    private void pair(String word, byte[] bytes, int length, long hash) {
+        tokens++;
+        if (hasPrevious) {
+            long key = mix(previousHash * 0x9E3779B97F4A7C15L + hash);
+            int estimate = sketch.add(key);
+            // 表满且估计次数不超过最小计数时 offer 一定不收，先判断，免得白建 String
+            if (!heavy.increment(key) && estimate >= minCount && estimate > heavy.minCount()) {
+                String first = previous != null ? previous
+                        : new String(previousBytes, 0, previousLength, StandardCharsets.US_ASCII);
+                String second = word != null ? word : new String(bytes, 0, length, StandardCharsets.US_ASCII);
+                heavy.offer(key, first, second, estimate);
+            }
+        }
+        hasPrevious = true;
+        previous = word;
+        if (word == null) {
+            if (previousBytes.length < length) {
+                previousBytes = Arrays.copyOf(previousBytes, Math.max(length, previousBytes.length * 2));
+            }
+            System.arraycopy(bytes, 0, previousBytes, 0, length);
+            previousLength = length;
+        }
+        previousHash = hash;
+    }
+
+    // 输入结束，把保留下来的边建成紧凑图
+    CompactGraph finish() {
+        tokenizer.finish();
+        // 高频表按计数从高到低，每个单词依次收下出边直到 maxOutDegree 条
+        Graph graph = new Graph();
+        Map<String, Integer> degrees = new HashMap<>();
+        for (int entry : heavy.entriesByCount()) {
+            long weight = Math.min(heavy.count(entry), sketch.estimate(heavy.key(entry)));
+            String first = heavy.first(entry);
+            if (maxOutDegree > 0 && degrees.merge(first, 1, Integer::sum) > maxOutDegree) {
+                prunedByDegree++;
+                continue;
+            }
+            graph.addEdge(first, heavy.second(entry), (int) Math.min(weight, Integer.MAX_VALUE));
+            edges++;
+        }
+        return graph.compact();
+    }
+
+    // 64 位单词哈希，FNV-1a 再混合一次
+    private static long hash(String word) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // 与 hash(String) 相同，单词只含 ASCII 字母
+    private static long hash(byte[] bytes, int length) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ bytes[i]) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long tokens() {
+        return tokens;
+    }
+
+    // 单词对总数
+    long pairs() {
+        return sketch.total();
+    }
+
+    CountMinSketch sketch() {
+        return sketch;
+    }
+
+    HeavyHitters heavyHitters() {
+        return heavy;
+    }
+
+    long estimatedBytes() {
+        return sketch.estimatedBytes() + heavy.estimatedBytes();
+    }
+
+    // 真实次数超过它的单词对一定保留了下来（出边数上限剪掉的除外）
+    long guaranteedCount() {
+        return Math.max(minCount - 1, heavy.minCount());
+    }
+
+    // 误差说明：草图的偏差上界和置信度、高频表的保留保证
+    String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "approximate ingest: %d words, %d word pairs, budget %d KB (used ~%d KB)\n",
+                tokens, pairs(), memoryBytes >> 10, estimatedBytes() >> 10));
+        out.append(String.format(Locale.ROOT,
+                "count-min sketch %dx%d: edge weights overestimate by at most %d (epsilon=%.2e of %d pairs) "
+                        + "with probability %.4f each\n",
+                sketch.depth(), sketch.width(), sketch.errorBound(), sketch.epsilon(), pairs(), 1 - sketch.delta()));
+        out.append(String.format(Locale.ROOT,
+                "heavy hitters %d/%d tracked, %d evictions: every pair seen more than %d times is kept\n",
+                heavy.size(), heavy.capacity(), heavy.evictions(), guaranteedCount()));
+        out.append(String.format(Locale.ROOT, "edges kept %d, pruned by out-degree limit %d",
+                edges, prunedByDegree));
+        return out.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 离线批量查询：逐行读入查询，分批在线程池里并行计算，结果按输入顺序写出
+// 每行一个查询，字段以制表符或空格分隔：[bridge|path] word1 word2，省略类型时为 bridge；空行跳过
+// 同时在途的批次数有上限，内存占用与查询文件大小无关；不生成图片，也不逐条打印
+final class BatchQueries {
+    // 每批的查询条数
+    static final int BATCH_SIZE = 4096;
+
+    enum Format {
+        TSV,
+        JSON
+    }
+
+    private BatchQueries() {
+    }
+
+    // 返回处理的查询条数
+    static long run(CompactGraph graph, BufferedReader in, Writer out, Format format, int threads)
+            throws IOException {
+        long[] count = {0};
+        Iterator<Callable<String>> batches = new Iterator<Callable<String>>() {
+            private List<String> next = readBatch();
+
+            @Override
+            public boolean hasNext() {
+                return !next.isEmpty();
+            }
+
+            @Override
+            public Callable<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<String> lines = next;
+                next = readBatch();
+                count[0] += lines.size();
+                return () -> {
+                    StringBuilder text = new StringBuilder(lines.size() * 64);
+                    for (String line : lines) {
+                        answer(graph, line, format, text);
+                    }
+                    return text.toString();
+                };
+            }
+
+            private List<String> readBatch() {
+                List<String> lines = new ArrayList<>(BATCH_SIZE);
+                try {
+                    String line;
+                    while (lines.size() < BATCH_SIZE && (line = in.readLine()) != null) {
+                        if (!line.trim().isEmpty()) {
+                            lines.add(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return lines;
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            OrderedBatches.run(pool, Math.max(1, threads) * 2, batches, out::write);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        return count[0];
+    }
+
+    // 计算一行查询，把结果行追加到 out
+    static void answer(CompactGraph graph, String line, Format format, StringBuilder out) {
+        String[] fields = line.trim().split("[\t ]+");
+        String type = "bridge";
+        int first = 0;
+        if (fields.length == 3) {
+            type = fields[0].toLowerCase();
+            first = 1;
+        }
+        String word1 = fields.length > first ? fields[first] : "";
+        String word2 = fields.length > first + 1 ? fields[first + 1] : "";
+
+        if (fields.length > 3 || fields.length == 3 && !type.equals("bridge") && !type.equals("path")) {
+            row(format, out, type, word1, word2, "BAD_QUERY", new ArrayList<String>(), -1,
+                    "Unrecognized query: " + line);
+        } else if (type.equals("bridge")) {
+            BridgeResult result = TextGraph.findBridgeWords(graph, word1, word2);
+            row(format, out, type, word1, word2, result.status.name(), result.bridges, -1, result.message());
+        } else {
+            PathResult result = TextGraph.findShortestPath(graph, word1, word2);
+            row(format, out, type, word1, word2, result.status.name(), result.path,
+                    result.status == PathResult.Status.FOUND ? result.length : -1, result.message());
+        }
+    }
+
+    // TSV：类型、word1、word2、状态、单词列表（逗号分隔）、路径长度（没有时为空）
+    // JSON：每行一个对象，字段同上，另外带上交互模式下的提示文本
+    private static void row(Format format, StringBuilder out, String type, String word1, String word2,
+                            String status, List<String> words, int length, String message) {
+        if (format == Format.TSV) {
+            out.append(tsv(type)).append('\t').append(tsv(word1)).append('\t').append(tsv(word2))
+                    .append('\t').append(status).append('\t').append(String.join(",", words)).append('\t');
+            if (length >= 0) {
+                out.append(length);
+            }
+            out.append('\n');
+            return;
+        }
+        out.append("{\"type\":");
+        json(type, out);
+        out.append(",\"word1\":");
+        json(word1, out);
+        out.append(",\"word2\":");
+        json(word2, out);
+        out.append(",\"status\":\"").append(status).append("\",\"words\":[");
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            json(words.get(i), out);
+        }
+        out.append(']');
+        if (length >= 0) {
+            out.append(",\"length\":").append(length);
+        }
+        out.append(",\"message\":");
+        json(message, out);
+        out.append("}\n");
+    }
+
+    // 字段里的制表符、换行会破坏行结构，换成空格
+    private static String tsv(String field) {
+        return field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static void json(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
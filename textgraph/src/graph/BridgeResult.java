@@ -0,0 +1,54 @@
+package graph;
+
+import java.util.Collections;
+import java.util.List;
+
+// 桥接词查询的结构化结果，message() 给出与原来格式一致的提示文本
+final class BridgeResult {
+    enum Status {
+        FOUND,
+        NO_BRIDGE,
+        LACK_OF_WORDS,
+        INVALID_INPUT,
+        MISSING_WORD1,
+        MISSING_WORD2,
+        MISSING_BOTH
+    }
+
+    final String word1;
+    final String word2;
+    final Status status;
+    // 桥接词，按原实现 HashSet 的遍历顺序排列（见 TextGraph.originalOrder），没有时为空列表
+    final List<String> bridges;
+
+    BridgeResult(String word1, String word2, Status status, List<String> bridges) {
+        this.word1 = word1;
+        this.word2 = word2;
+        this.status = status;
+        this.bridges = bridges;
+    }
+
+    BridgeResult(String word1, String word2, Status status) {
+        this(word1, word2, status, Collections.<String>emptyList());
+    }
+
+    String message() {
+        switch (status) {
+            case LACK_OF_WORDS:
+                return "Lack of words";
+            case INVALID_INPUT:
+                return "Invalid input: Input strings must be alphabetic words.";
+            case MISSING_WORD1:
+                return "No \"" + word1 + "\" in the graph!";
+            case MISSING_WORD2:
+                return "No \"" + word2 + "\" in the graph!";
+            case MISSING_BOTH:
+                return "No \"" + word1 + "\" and \"" + word2 + "\" in the graph!";
+            case NO_BRIDGE:
+                return "No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!";
+            default:
+                return "The bridge words from \"" + word1 + "\" to \"" + word2
+                        + "\" are: " + String.join(", ", bridges);
+        }
+    }
+}
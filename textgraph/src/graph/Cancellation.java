@@ -0,0 +1,19 @@
+package graph;
+
+import java.util.concurrent.CancellationException;
+
+// 查询的协作式取消：服务模式超时时中断工作线程，长时间运行的循环每隔一段检查一次中断标志，
+// 被中断就抛出 CancellationException 退出，工作线程随即空出来；中断标志保留给线程池清理
+final class Cancellation {
+    // 循环计数与它按位与为 0 时检查一次，检查本身很便宜，间隔只是为了不占热循环
+    static final int CHECK_MASK = 1023;
+
+    private Cancellation() {
+    }
+
+    static void checkpoint() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("query interrupted");
+        }
+    }
+}
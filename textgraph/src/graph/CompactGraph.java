@@ -0,0 +1,632 @@
+package graph;
+
+import graph.TextGraph.Graph;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// 冻结后的紧凑图：单词编码成整数编号，邻接表用 CSR 形式的基本类型数组保存
+// 结点 u 的出边是 [edgeStart(u), edgeEnd(u)) 区间内的边，边按目标编号升序排列
+// 另外保存一份入边索引：结点 v 的入边是 [inStart(v), inEnd(v))，按起点编号升序排列
+// 实例不可变，增量追加（withDelta）得到新版本：CSR 数组与旧版本共享，被改动结点的邻接表放在补丁里，
+// 新单词的编号接在已有编号之后；补丁里的边编号从基础边数开始
+final class CompactGraph {
+    // 每个图实例有唯一的版本号，缓存用它区分不同的图
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    // 补丁累积到这么多条边以上、且超过基础边数时整体压缩一次
+    private static final int MIN_COMPACT_EDGES = 1 << 16;
+    // 在后台构建可达性索引和游走别名表，查询线程不等 O(V+E) 的构建
+    private static final ExecutorService INDEX_BUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long version;
+    private final WordDictionary dictionary;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inWeights;
+    // 增量部分：追加的单词、覆盖的出边和入边，没有增量时为 null
+    private final ExtraWords extraWords;
+    private final AdjacencyPatch outPatch;
+    private final AdjacencyPatch inPatch;
+    private final int baseNodes;
+    private final int baseEdges;
+    private final int nodeCount;
+    private final int edgeCount;
+    // 按需构建的派生索引
+    private volatile WalkEngine walkEngine;
+    private volatile ReachabilityIndex reachability;
+    private volatile PageRank pageRank;
+    private volatile Subgraph.HeavyEdges heavyEdges;
+    private volatile Subgraph.HeavyNeighbours heavyNeighbours;
+    private final AtomicBoolean reachabilityScheduled = new AtomicBoolean();
+    private final AtomicBoolean walkEngineScheduled = new AtomicBoolean();
+
+    CompactGraph(WordDictionary dictionary, int[] offsets, int[] targets, int[] weights) {
+        this(dictionary, offsets, targets, weights, reverse(offsets, targets, weights));
+    }
+
+    private CompactGraph(WordDictionary dictionary, int[] offsets, int[] targets, int[] weights, int[][] in) {
+        this(dictionary, offsets, targets, weights, in[0], in[1], in[2]);
+    }
+
+    // 入边索引已经现成（例如从快照读入）时直接使用
+    CompactGraph(WordDictionary dictionary, int[] offsets, int[] targets, int[] weights,
+                 int[] inOffsets, int[] inSources, int[] inWeights) {
+        this(VERSIONS.incrementAndGet(), dictionary, offsets, targets, weights, inOffsets, inSources, inWeights,
+                null, null, null, dictionary.size(), targets.length);
+    }
+
+    private CompactGraph(long version, WordDictionary dictionary, int[] offsets, int[] targets, int[] weights,
+                         int[] inOffsets, int[] inSources, int[] inWeights, ExtraWords extraWords,
+                         AdjacencyPatch outPatch, AdjacencyPatch inPatch, int nodeCount, int edgeCount) {
+        this.version = version;
+        this.dictionary = dictionary;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+        this.extraWords = extraWords;
+        this.outPatch = outPatch;
+        this.inPatch = inPatch;
+        this.baseNodes = dictionary.size();
+        this.baseEdges = targets.length;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+    }
+
+    // 计数排序建入边索引；按 u 升序扫描，每个结点的入边自然按起点编号有序
+    private static int[][] reverse(int[] offsets, int[] targets, int[] weights) {
+        int n = offsets.length - 1;
+        int[] inOffsets = new int[n + 1];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inSources = new int[targets.length];
+        int[] inWeights = new int[targets.length];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int i = fill[targets[e]]++;
+                inSources[i] = u;
+                inWeights[i] = weights[e];
+            }
+        }
+        return new int[][] {inOffsets, inSources, inWeights};
+    }
+
+    // 从可变的 Graph 构建
+    // 编号按 new HashSet<>(keySet) 的遍历顺序分配，和原来 Dijkstra 扫描结点的顺序一致，
+    // 这样距离相同时选到的结点也一样
+    static CompactGraph from(Graph graph) {
+        Map<String, Map<String, Integer>> adjList = graph.getAdjList();
+        Set<String> nodes = new LinkedHashSet<>(new HashSet<>(adjList.keySet()));
+        int edgeCount = 0;
+        for (Map<String, Integer> edges : adjList.values()) {
+            edgeCount += edges.size();
+            // 只作为边终点出现的单词也要有编号
+            nodes.addAll(edges.keySet());
+        }
+        WordDictionary dictionary = new WordDictionary(nodes.toArray(new String[0]));
+
+        int n = dictionary.size();
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        long[] packed = new long[16];
+        int e = 0;
+        for (int u = 0; u < n; u++) {
+            offsets[u] = e;
+            Map<String, Integer> edges = adjList.get(dictionary.word(u));
+            if (edges == null) {
+                continue;
+            }
+            if (packed.length < edges.size()) {
+                packed = new long[edges.size()];
+            }
+            int degree = 0;
+            for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+                packed[degree++] = (long) dictionary.id(edge.getKey()) << 32 | edge.getValue();
+            }
+            Arrays.sort(packed, 0, degree);
+            for (int i = 0; i < degree; i++) {
+                targets[e] = (int) (packed[i] >>> 32);
+                weights[e] = (int) packed[i];
+                e++;
+            }
+        }
+        offsets[n] = e;
+        return new CompactGraph(dictionary, offsets, targets, weights);
+    }
+
+    long version() {
+        return version;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    // 边编号的上界；有补丁时被覆盖的旧边编号不再使用，所以可能大于 edgeCount()
+    int edgeIdBound() {
+        return outPatch == null ? baseEdges : baseEdges + outPatch.length();
+    }
+
+    // 所有边的权重之和，即相邻单词对的个数
+    long totalWeight() {
+        long total = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = edgeStart(u); e < edgeEnd(u); e++) {
+                total += weight(e);
+            }
+        }
+        return total;
+    }
+
+    // 估算占用的堆内存，包括已经构建的派生索引
+    long estimatedBytes() {
+        long bytes = 64 + dictionary.estimatedBytes() + 2 * (16 + 4L * offsets.length) + 4 * (16 + 4L * baseEdges);
+        if (extraWords != null) {
+            bytes += extraWords.estimatedBytes();
+        }
+        if (outPatch != null) {
+            bytes += outPatch.estimatedBytes() + inPatch.estimatedBytes();
+        }
+        WalkEngine engine = walkEngine;
+        if (engine != null) {
+            bytes += engine.estimatedBytes();
+        }
+        ReachabilityIndex index = reachability;
+        if (index != null) {
+            bytes += index.estimatedBytes();
+        }
+        PageRank ranks = pageRank;
+        if (ranks != null) {
+            bytes += ranks.estimatedBytes();
+        }
+        Subgraph.HeavyEdges heavy = heavyEdges;
+        if (heavy != null) {
+            bytes += heavy.estimatedBytes();
+        }
+        Subgraph.HeavyNeighbours neighbours = heavyNeighbours;
+        if (neighbours != null) {
+            bytes += neighbours.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    // 单词的编号，不在图中时返回 -1
+    int id(String word) {
+        int id = dictionary.id(word);
+        if (id < 0 && extraWords != null) {
+            id = extraWords.id(word);
+            if (id >= 0) {
+                id += baseNodes;
+            }
+        }
+        return id;
+    }
+
+    String word(int id) {
+        return id < baseNodes ? dictionary.word(id) : extraWords.word(id - baseNodes);
+    }
+
+    int edgeStart(int u) {
+        if (outPatch != null) {
+            int location = outPatch.location(u);
+            if (location >= 0) {
+                return baseEdges + location + 1;
+            }
+        }
+        return u < baseNodes ? offsets[u] : 0;
+    }
+
+    int edgeEnd(int u) {
+        if (outPatch != null) {
+            int location = outPatch.location(u);
+            if (location >= 0) {
+                return baseEdges + location + 1 + outPatch.degree(location);
+            }
+        }
+        return u < baseNodes ? offsets[u + 1] : 0;
+    }
+
+    int target(int e) {
+        return e < baseEdges ? targets[e] : outPatch.id(e - baseEdges);
+    }
+
+    int weight(int e) {
+        return e < baseEdges ? weights[e] : outPatch.weight(e - baseEdges);
+    }
+
+    int inStart(int v) {
+        if (inPatch != null) {
+            int location = inPatch.location(v);
+            if (location >= 0) {
+                return baseEdges + location + 1;
+            }
+        }
+        return v < baseNodes ? inOffsets[v] : 0;
+    }
+
+    int inEnd(int v) {
+        if (inPatch != null) {
+            int location = inPatch.location(v);
+            if (location >= 0) {
+                return baseEdges + location + 1 + inPatch.degree(location);
+            }
+        }
+        return v < baseNodes ? inOffsets[v + 1] : 0;
+    }
+
+    // 第 i 条入边的起点
+    int source(int i) {
+        return i < baseEdges ? inSources[i] : inPatch.id(i - baseEdges);
+    }
+
+    int inWeight(int i) {
+        return i < baseEdges ? inWeights[i] : inPatch.weight(i - baseEdges);
+    }
+
+    // 桥接词：u 的后继与 w 的前驱的交集，两边都是有序编号，
+    // 在较小的一边上逐个到较大的一边做倍增查找
+    int[] bridges(int u, int w) {
+        boolean smallOut = true;
+        int smallFrom = edgeStart(u);
+        int smallTo = edgeEnd(u);
+        int largeFrom = inStart(w);
+        int largeTo = inEnd(w);
+        if (smallTo - smallFrom > largeTo - largeFrom) {
+            smallOut = false;
+            smallFrom = largeFrom;
+            smallTo = largeTo;
+            largeFrom = edgeStart(u);
+            largeTo = edgeEnd(u);
+        }
+        int[] result = new int[Math.min(smallTo - smallFrom, largeTo - largeFrom)];
+        int count = 0;
+        int lo = largeFrom;
+        for (int i = smallFrom; i < smallTo && lo < largeTo; i++) {
+            int key = smallOut ? target(i) : source(i);
+            // 倍增找到包含 key 的区间，再二分
+            int step = 1;
+            int hi = lo;
+            while (hi < largeTo && (smallOut ? source(hi) : target(hi)) < key) {
+                lo = hi;
+                hi += step;
+                step <<= 1;
+            }
+            int found = search(!smallOut, lo, Math.min(hi + 1, largeTo), key);
+            if (found >= 0) {
+                result[count++] = key;
+                lo = found + 1;
+            } else {
+                lo = -found - 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // 在出边（out 为 true）或入边的 [from, to) 区间里二分查找 key，返回值约定同 Arrays.binarySearch
+    private int search(boolean out, int from, int to, int key) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = out ? target(mid) : source(mid);
+            if (value < key) {
+                lo = mid + 1;
+            } else if (value > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // 随机游走用的别名表，第一次调用时在调用线程上构建；单次查询应使用 walkEngineIfBuilt
+    WalkEngine walkEngine() {
+        WalkEngine engine = walkEngine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = walkEngine;
+                if (engine == null) {
+                    engine = new WalkEngine(this);
+                    walkEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    // 强连通分量和可达性标签，第一次调用时在调用线程上构建；查询应使用 reachabilityIfBuilt
+    ReachabilityIndex reachability() {
+        ReachabilityIndex index = reachability;
+        if (index == null) {
+            synchronized (this) {
+                index = reachability;
+                if (index == null) {
+                    index = new ReachabilityIndex(this);
+                    reachability = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // 查询用：索引已经建好时返回它；还没有时交给后台线程构建并返回 null，查询照常搜索、不剪枝
+    // 每次追加都产生新版本，不能让追加后的第一个查询付出整张图的构建代价；
+    // 后台任务只持有弱引用，构建轮到时版本已经没人用了就跳过
+    ReachabilityIndex reachabilityIfBuilt() {
+        ReachabilityIndex index = reachability;
+        if (index == null && reachabilityScheduled.compareAndSet(false, true)) {
+            buildInBackground(CompactGraph::reachability);
+        }
+        return index;
+    }
+
+    // 同 reachabilityIfBuilt：别名表已经建好时返回它，否则交给后台线程构建并返回 null，
+    // 调用方改用 WalkEngine.withoutTables，不让追加后的第一个游走请求付出 O(E) 的建表代价
+    WalkEngine walkEngineIfBuilt() {
+        WalkEngine engine = walkEngine;
+        if (engine == null && walkEngineScheduled.compareAndSet(false, true)) {
+            buildInBackground(CompactGraph::walkEngine);
+        }
+        return engine;
+    }
+
+    private void buildInBackground(Consumer<CompactGraph> build) {
+        WeakReference<CompactGraph> graph = new WeakReference<>(this);
+        INDEX_BUILDER.execute(() -> {
+            CompactGraph current = graph.get();
+            if (current != null) {
+                build.accept(current);
+            }
+        });
+    }
+
+    // 默认参数下的 PageRank，第一次使用时在所有核上计算
+    PageRank pageRank() {
+        PageRank ranks = pageRank;
+        if (ranks == null) {
+            synchronized (this) {
+                ranks = pageRank;
+                if (ranks == null) {
+                    ranks = PageRank.compute(this);
+                    pageRank = ranks;
+                }
+            }
+        }
+        return ranks;
+    }
+
+    // 权重最高的一批边，渲染大图时用，第一次使用时构建
+    Subgraph.HeavyEdges heavyEdges() {
+        Subgraph.HeavyEdges heavy = heavyEdges;
+        if (heavy == null) {
+            synchronized (this) {
+                heavy = heavyEdges;
+                if (heavy == null) {
+                    heavy = new Subgraph.HeavyEdges(this);
+                    heavyEdges = heavy;
+                }
+            }
+        }
+        return heavy;
+    }
+
+    // 每个结点权重最高的一批邻居，渲染大图的邻域时用，第一次使用时构建
+    Subgraph.HeavyNeighbours heavyNeighbours() {
+        Subgraph.HeavyNeighbours neighbours = heavyNeighbours;
+        if (neighbours == null) {
+            synchronized (this) {
+                neighbours = heavyNeighbours;
+                if (neighbours == null) {
+                    neighbours = new Subgraph.HeavyNeighbours(this);
+                    heavyNeighbours = neighbours;
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    // 查找 u -> v 的边，返回边编号，不存在时返回 -1
+    int findEdge(int u, int v) {
+        int i = search(true, edgeStart(u), edgeEnd(u), v);
+        return i >= 0 ? i : -1;
+    }
+
+    // 在这个版本上叠加一批边计数，返回新版本，这个版本本身不变
+    // 只重写增量涉及的结点的邻接表，耗时与这些邻接表的规模成正比，与整张图无关；
+    // 补丁累积得比基础部分还大时整体压缩一次，均摊下来仍与增量成正比
+    CompactGraph withDelta(Graph delta) {
+        Map<String, Map<String, Integer>> adjList = delta.getAdjList();
+        // 新单词接在已有编号之后
+        Map<String, Integer> added = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : adjList.entrySet()) {
+            assign(entry.getKey(), added);
+            for (String word : entry.getValue().keySet()) {
+                assign(word, added);
+            }
+        }
+
+        // 按起点和终点分组的增量边，打包成 (编号 << 32 | 次数)
+        Map<Integer, List<Long>> outDelta = new TreeMap<>();
+        Map<Integer, List<Long>> inDelta = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : adjList.entrySet()) {
+            int u = idOrAdded(entry.getKey(), added);
+            for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+                int v = idOrAdded(edge.getKey(), added);
+                outDelta.computeIfAbsent(u, k -> new ArrayList<>()).add((long) v << 32 | edge.getValue());
+                inDelta.computeIfAbsent(v, k -> new ArrayList<>()).add((long) u << 32 | edge.getValue());
+            }
+        }
+
+        int[] created = new int[1];
+        AdjacencyPatch out = merge(outPatch, outDelta, true, created);
+        AdjacencyPatch in = merge(inPatch, inDelta, false, null);
+
+        // 新单词追加到与旧版本共享的字典末尾，不复制已有的增量单词
+        ExtraWords extra = extraWords;
+        if (!added.isEmpty()) {
+            extra = (extra == null ? ExtraWords.empty() : extra).with(added.keySet());
+        }
+
+        CompactGraph next = new CompactGraph(VERSIONS.incrementAndGet(), dictionary, offsets, targets, weights,
+                inOffsets, inSources, inWeights, extra, out, in, nodeCount + added.size(), edgeCount + created[0]);
+        if (out.length() > Math.max(MIN_COMPACT_EDGES, baseEdges)) {
+            return next.compacted();
+        }
+        return next;
+    }
+
+    private void assign(String word, Map<String, Integer> added) {
+        if (id(word) < 0 && !added.containsKey(word)) {
+            added.put(word, nodeCount + added.size());
+        }
+    }
+
+    private int idOrAdded(String word, Map<String, Integer> added) {
+        int id = id(word);
+        return id >= 0 ? id : added.get(word);
+    }
+
+    // 把每个结点已有的邻接表和增量归并成新的有序邻接表，写进补丁
+    // 增量里的每个编号二分出在已有邻接表里的位置，中间没变的部分整段拷贝，不逐条比较
+    // created 不为 null 时累加新出现的边数
+    private AdjacencyPatch merge(AdjacencyPatch patch, Map<Integer, List<Long>> delta, boolean out, int[] created) {
+        if (patch == null) {
+            patch = AdjacencyPatch.empty();
+        }
+        int[] nodes = new int[delta.size()];
+        int[][] lists = new int[delta.size()][];
+        int[][] listWeights = new int[delta.size()][];
+        int k = 0;
+        for (Map.Entry<Integer, List<Long>> entry : delta.entrySet()) {
+            int node = entry.getKey();
+            long[] packed = new long[entry.getValue().size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = entry.getValue().get(i);
+            }
+            Arrays.sort(packed);
+            int from = out ? edgeStart(node) : inStart(node);
+            int to = out ? edgeEnd(node) : inEnd(node);
+            // 已有邻接表所在的数组：基础 CSR 或者旧补丁的存储
+            int[] oldIds = out ? targets : inSources;
+            int[] oldWeights = out ? weights : inWeights;
+            if (from == to) {
+                from = 0;
+                to = 0;
+            } else if (from >= baseEdges) {
+                AdjacencyPatch old = out ? outPatch : inPatch;
+                oldIds = old.ids();
+                oldWeights = old.weights();
+                from -= baseEdges;
+                to -= baseEdges;
+            }
+            int[] positions = new int[packed.length];
+            int added = 0;
+            int lo = from;
+            for (int j = 0; j < packed.length; j++) {
+                positions[j] = Arrays.binarySearch(oldIds, lo, to, (int) (packed[j] >>> 32));
+                if (positions[j] < 0) {
+                    added++;
+                    lo = -(positions[j] + 1);
+                } else {
+                    lo = positions[j] + 1;
+                }
+            }
+            int[] ids = new int[to - from + added];
+            int[] ws = new int[ids.length];
+            int size = 0;
+            int i = from;
+            for (int j = 0; j < packed.length; j++) {
+                int position = positions[j] >= 0 ? positions[j] : -(positions[j] + 1);
+                System.arraycopy(oldIds, i, ids, size, position - i);
+                System.arraycopy(oldWeights, i, ws, size, position - i);
+                size += position - i;
+                i = position;
+                ids[size] = (int) (packed[j] >>> 32);
+                ws[size] = (int) packed[j];
+                if (positions[j] >= 0) {
+                    ws[size] += oldWeights[i++];
+                }
+                size++;
+            }
+            System.arraycopy(oldIds, i, ids, size, to - i);
+            System.arraycopy(oldWeights, i, ws, size, to - i);
+            if (created != null) {
+                created[0] += added;
+            }
+            nodes[k] = node;
+            lists[k] = ids;
+            listWeights[k] = ws;
+            k++;
+        }
+        return patch.with(nodes, lists, listWeights);
+    }
+
+    // 把补丁合并回连续的 CSR 数组，编号和版本号都不变
+    CompactGraph compacted() {
+        if (outPatch == null && extraWords == null) {
+            return this;
+        }
+        int n = nodeCount;
+        String[] words = new String[n];
+        for (int id = 0; id < n; id++) {
+            words[id] = word(id);
+        }
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[edgeCount];
+        int[] newWeights = new int[edgeCount];
+        int[] newInOffsets = new int[n + 1];
+        int[] newInSources = new int[edgeCount];
+        int[] newInWeights = new int[edgeCount];
+        int e = 0;
+        int in = 0;
+        for (int u = 0; u < n; u++) {
+            newOffsets[u] = e;
+            for (int i = edgeStart(u); i < edgeEnd(u); i++) {
+                newTargets[e] = target(i);
+                newWeights[e++] = weight(i);
+            }
+            newInOffsets[u] = in;
+            for (int i = inStart(u); i < inEnd(u); i++) {
+                newInSources[in] = source(i);
+                newInWeights[in++] = inWeight(i);
+            }
+        }
+        newOffsets[n] = e;
+        newInOffsets[n] = in;
+        return new CompactGraph(version, new WordDictionary(words), newOffsets, newTargets, newWeights,
+                newInOffsets, newInSources, newInWeights, null, null, null, n, edgeCount);
+    }
+}
@@ -0,0 +1,85 @@
+package graph;
+
+// Count-Min 计数草图：depth 行、每行 width 个计数器，内存固定
+// 估计值只会偏大：以 1 - delta 的概率，偏差不超过 epsilon * total，其中 epsilon = e / width，delta = e^-depth
+// 采用保守更新：只增加等于当前最小值的计数器，偏差上界不变，实际偏差更小
+final class CountMinSketch {
+    private final int depth;
+    private final int mask;
+    private final int[] counts;
+    private long total;
+
+    // width 向下取到 2 的幂
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int w = Integer.highestOneBit(Math.max(16, width));
+        this.mask = w - 1;
+        this.counts = new int[depth * w];
+    }
+
+    // 在 bytes 字节之内能放下的最宽的草图
+    static CountMinSketch withBudget(long bytes, int depth) {
+        return new CountMinSketch(depth, (int) Math.min(1 << 30, bytes / 4 / depth));
+    }
+
+    int width() {
+        return mask + 1;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    // 计一次 key，返回计数后的估计值
+    int add(long key) {
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counts[i * width() + ((h1 + i * h2) & mask)]);
+        }
+        total++;
+        if (min == Integer.MAX_VALUE) {
+            return min;
+        }
+        for (int i = 0; i < depth; i++) {
+            int slot = i * width() + ((h1 + i * h2) & mask);
+            if (counts[slot] == min) {
+                counts[slot] = min + 1;
+            }
+        }
+        return min + 1;
+    }
+
+    int estimate(long key) {
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counts[i * width() + ((h1 + i * h2) & mask)]);
+        }
+        return min;
+    }
+
+    // 已计入的次数
+    long total() {
+        return total;
+    }
+
+    double epsilon() {
+        return Math.E / width();
+    }
+
+    double delta() {
+        return Math.exp(-depth);
+    }
+
+    // 估计值偏大的上界 epsilon * total，成立的概率为 1 - delta
+    long errorBound() {
+        return (long) Math.ceil(epsilon() * total);
+    }
+
+    long estimatedBytes() {
+        return 64 + 4L * counts.length;
+    }
+}
@@ -0,0 +1,118 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// 增量追加的单词，编号从 0 连续分配，本身不可变
+// 和 AdjacencyPatch 一样，多个版本共享同一份追加存储，每个版本只看自己 size 以内的编号：
+// 新版本只把新单词写到存储末尾、插进共享的槽位数组，不复制已有单词，耗时与新单词数成正比（扩容时均摊）
+// 查找时跳过编号不属于本版本的槽位，所以之后的版本写入的槽位不影响旧版本
+final class ExtraWords {
+    // 多个版本共享的追加存储；槽位存放 id + 1，0 表示空槽，装载率不超过一半
+    private static final class Storage {
+        String[] words = new String[16];
+        int[] slots = new int[32];
+        int used;
+    }
+
+    private final Storage storage;
+    private final String[] words;
+    private final int[] slots;
+    private final int size;
+
+    private ExtraWords(Storage storage, int size) {
+        this.storage = storage;
+        this.words = storage.words;
+        this.slots = storage.slots;
+        this.size = size;
+    }
+
+    static ExtraWords empty() {
+        return new ExtraWords(new Storage(), 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String word(int id) {
+        return words[id];
+    }
+
+    // 返回单词的编号，不存在时返回 -1
+    int id(String word) {
+        int mask = slots.length - 1;
+        for (int slot = mix(word.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry <= size && words[entry - 1].equals(word)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // 估算本版本能看到的部分占用的堆内存
+    long estimatedBytes() {
+        long bytes = 16 + 4L * slots.length + 16 + 8L * size;
+        for (int id = 0; id < size; id++) {
+            bytes += 40 + 16 + words[id].length();
+        }
+        return bytes;
+    }
+
+    // 在末尾追加 added 中的单词（调用方保证它们都不在本版本里），返回新版本
+    ExtraWords with(Collection<String> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        synchronized (storage) {
+            Storage target;
+            if (storage.used == size) {
+                target = storage;
+            } else {
+                // 这个版本之后已经有别的版本追加过，复制本版本的部分再写
+                target = new Storage();
+                target.words = Arrays.copyOf(words, Math.max(16, size * 2));
+                target.slots = new int[slots.length];
+                target.used = size;
+                rehash(target);
+            }
+            int needed = target.used + added.size();
+            if (needed > target.words.length) {
+                target.words = Arrays.copyOf(target.words, Math.max(needed, target.words.length * 2));
+            }
+            if (needed * 2 > target.slots.length) {
+                // 新数组上重建，旧版本仍引用原来的槽位数组
+                target.slots = new int[Integer.highestOneBit(needed * 2 - 1) << 2];
+                rehash(target);
+            }
+            for (String word : added) {
+                target.words[target.used] = word;
+                insert(target.slots, word, target.used);
+                target.used++;
+            }
+            return new ExtraWords(target, target.used);
+        }
+    }
+
+    private static void rehash(Storage storage) {
+        for (int id = 0; id < storage.used; id++) {
+            insert(storage.slots, storage.words[id], id);
+        }
+    }
+
+    private static void insert(int[] slots, String word, int id) {
+        int mask = slots.length - 1;
+        int slot = mix(word.hashCode()) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
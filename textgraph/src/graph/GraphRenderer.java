@@ -0,0 +1,359 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Graphviz 渲染：DOT 直接流式写入文件，dot 进程在有界的后台线程池里运行，调用方拿到 future 立即返回
+// 渲染结果按 (图版本, 高亮集合) 缓存，同样的请求第二次直接复用已生成的图片
+// 文件按 DOT 内容的 SHA-256 命名，内容相同的请求共用一份文件；缓存项被淘汰后，
+// 没有其它缓存项再引用的 dot、png 文件会被删掉，目录里的文件数随缓存上限有界
+// 图超过 Subgraph 的上限时只画抽取出的子图，DOT 的规模与整张图无关
+final class GraphRenderer {
+    static final GraphRenderer SHARED = new GraphRenderer(Paths.get("render-cache"), 2, 32, 128);
+    // 整张图里突出显示的枢纽词个数
+    static final int HUBS = 10;
+
+    // 生成 DOT 文本
+    interface DotSource {
+        void write(Appendable out) throws IOException;
+    }
+
+    // 把 DOT 文件转换成 PNG
+    interface Converter {
+        void convert(Path dot, Path png) throws IOException, InterruptedException;
+    }
+
+    private final Path directory;
+    private final ThreadPoolExecutor executor;
+    private final int maxEntries;
+    private final Converter converter;
+    private final Map<String, CompletableFuture<Path>> cache;
+    // 每个 png 文件被多少个缓存项引用
+    private final Map<Path, Integer> references = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    GraphRenderer(Path directory, int threads, int queueSize, int maxEntries) {
+        this(directory, threads, queueSize, maxEntries, GraphRenderer::runDot);
+    }
+
+    GraphRenderer(Path directory, int threads, int queueSize, int maxEntries, Converter converter) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.converter = converter;
+        this.cache = new LinkedHashMap<String, CompletableFuture<Path>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Path>> eldest) {
+                if (size() <= GraphRenderer.this.maxEntries) {
+                    return false;
+                }
+                // 还在渲染的等它完成后再删文件；失败的渲染没有文件
+                eldest.getValue().thenAccept(GraphRenderer.this::release);
+                return true;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "graph-renderer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // 渲染整张图，返回 PNG 路径
+    CompletableFuture<Path> render(CompactGraph graph) {
+        return render(graph.version() + "|all", out -> writeDot(graph, out));
+    }
+
+    // 渲染 words 周围 hops 跳的邻域
+    CompletableFuture<Path> renderNeighbourhood(CompactGraph graph, List<String> words, int hops) {
+        return render(graph.version() + "|around|" + hops + "|" + words,
+                out -> writeNeighbourhoodDot(graph, words, hops, out));
+    }
+
+    // 渲染高亮了一条最短路径的图
+    CompletableFuture<Path> renderPath(CompactGraph graph, List<String> path) {
+        return render(graph.version() + "|path|" + path, out -> writePathDot(graph, path, out));
+    }
+
+    // 渲染高亮了 word1、word2 和桥接词的图
+    CompletableFuture<Path> renderHighlight(CompactGraph graph, String word1, String word2, Set<String> bridges) {
+        String key = graph.version() + "|" + word1 + "|" + word2 + "|" + new TreeSet<>(bridges);
+        return render(key, out -> writeHighlightDot(graph, word1, word2, bridges, out));
+    }
+
+    // 按 key 查缓存，没有时提交到后台线程；队列满时返回失败的 future，不阻塞调用方
+    CompletableFuture<Path> render(String key, DotSource source) {
+        CompletableFuture<Path> future;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future != null) {
+                hits.incrementAndGet();
+                return future;
+            }
+            misses.incrementAndGet();
+            try {
+                future = CompletableFuture.supplyAsync(() -> renderNow(source), executor);
+            } catch (RejectedExecutionException e) {
+                CompletableFuture<Path> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            cache.put(key, future);
+        }
+        // 失败的渲染不留在缓存里，下次可以重试
+        CompletableFuture<Path> submitted = future;
+        submitted.whenComplete((path, error) -> {
+            if (error != null) {
+                synchronized (cache) {
+                    cache.remove(key, submitted);
+                }
+            }
+        });
+        return submitted;
+    }
+
+    // 把已生成的 dot、png 复制到调用方指定的位置；加锁避免多个回调同时覆盖同一个文件
+    static synchronized void copyTo(Path png, String dotFileName, String pngFileName) throws IOException {
+        String base = png.toString();
+        Path dot = Paths.get(base.substring(0, base.length() - ".png".length()) + ".dot");
+        Files.copy(dot, Paths.get(dotFileName), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(png, Paths.get(pngFileName), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    // 先写到临时文件，边写边算摘要，再按摘要改名；同样内容的 png 已经由别的缓存项生成时直接复用
+    private Path renderNow(DotSource source) {
+        Path dotTemp = null;
+        Path pngTemp = null;
+        try {
+            Files.createDirectories(directory);
+            dotTemp = Files.createTempFile(directory, "render-", ".dot.tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(Files.newOutputStream(dotTemp), digest), StandardCharsets.UTF_8))) {
+                source.write(writer);
+            }
+            String name = "render-" + hex(digest.digest(), 16);
+            Path dot = directory.resolve(name + ".dot");
+            Path png = directory.resolve(name + ".png");
+            synchronized (references) {
+                if (references.containsKey(png)) {
+                    references.merge(png, 1, Integer::sum);
+                    return png;
+                }
+            }
+            pngTemp = Files.createTempFile(directory, "render-", ".png.tmp");
+            converter.convert(dotTemp, pngTemp);
+            // 改名和登记引用在同一把锁里，与淘汰时的删除互斥
+            synchronized (references) {
+                Files.move(dotTemp, dot, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(pngTemp, png, StandardCopyOption.REPLACE_EXISTING);
+                references.merge(png, 1, Integer::sum);
+            }
+            return png;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deleteQuietly(dotTemp);
+            deleteQuietly(pngTemp);
+        }
+    }
+
+    // 缓存项被淘汰：最后一个引用者离开时删掉 dot 和 png
+    private void release(Path png) {
+        synchronized (references) {
+            Integer count = references.get(png);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                references.put(png, count - 1);
+                return;
+            }
+            references.remove(png);
+            String base = png.toString();
+            deleteQuietly(Paths.get(base.substring(0, base.length() - ".png".length()) + ".dot"));
+            deleteQuietly(png);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 删不掉的文件留给下次，不影响渲染结果
+        }
+    }
+
+    private static String hex(byte[] bytes, int length) {
+        StringBuilder out = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            out.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return out.toString();
+    }
+
+    // 使用 dot 命令生成 PNG 文件
+    private static void runDot(Path dot, Path png) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder("dot", "-Tpng", dot.toString(), "-o", png.toString())
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int exit = p.waitFor();
+        if (exit != 0) {
+            throw new IOException("dot exited with code " + exit);
+        }
+    }
+
+    // 整张图的 DOT，PageRank 最高的 HUBS 个单词涂成金色；图太大时只画权重最高的边
+    static void writeDot(CompactGraph graph, Appendable out) throws IOException {
+        Subgraph sub = Subgraph.forRendering(graph);
+        out.append("digraph G {\n");
+        if (graph.nodeCount() > 0) {
+            for (int hub : graph.pageRank().top(HUBS)) {
+                if (sub.contains(hub)) {
+                    out.append('"').append(graph.word(hub)).append("\" [style=filled, fillcolor=\"gold\"];\n");
+                }
+            }
+        }
+        for (int i = 0; i < sub.edgeCount(); i++) {
+            out.append('"').append(graph.word(sub.sources[i])).append("\" -> \"").append(graph.word(sub.targets[i]))
+                    .append("\" [label=\"").append(Integer.toString(sub.weights[i])).append("\"];\n");
+        }
+        out.append("}\n");
+    }
+
+    // word1、word2 标蓝，桥接词标绿；图太大时只画这些单词和它们的一跳邻居
+    static void writeHighlightDot(CompactGraph graph, String word1, String word2, Set<String> bridges,
+                                  Appendable out) throws IOException {
+        int[] seeds = new int[bridges.size() + 2];
+        int size = 0;
+        seeds[size++] = graph.id(word1);
+        seeds[size++] = graph.id(word2);
+        for (String bridge : bridges) {
+            seeds[size++] = graph.id(bridge);
+        }
+        Subgraph sub = Subgraph.forHighlight(graph, seeds);
+        out.append("digraph G {\n");
+
+        for (int u : sub.nodes) {
+            String node = graph.word(u);
+            if (node.equals(word1) || node.equals(word2)) {
+                out.append("    ").append(node).append(" [label=<<font color=\"blue\"><b>").append(node).append("</b></font>>];\n");
+            } else if (bridges.contains(node)) {
+                out.append("    ").append(node).append(" [label=<<font color=\"green\"><b>").append(node).append("</b></font>>];\n");
+            } else {
+                out.append("    ").append(node).append(";\n");
+            }
+        }
+
+        for (int i = 0; i < sub.edgeCount(); i++) {
+            out.append("    ").append(graph.word(sub.sources[i])).append(" -> ").append(graph.word(sub.targets[i]))
+                    .append(" [label=\"").append(Integer.toString(sub.weights[i])).append("\"];\n");
+        }
+
+        out.append("}");
+    }
+
+    // 最短路径标红，路径上的边加粗；图太大时只画路径和它的一跳邻居
+    static void writePathDot(CompactGraph graph, List<String> path, Appendable out) throws IOException {
+        int[] seeds = new int[path.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = graph.id(path.get(i));
+        }
+        Subgraph sub = Subgraph.forHighlight(graph, seeds);
+        Set<Long> pathEdges = new HashSet<>();
+        for (int i = 0; i + 1 < seeds.length; i++) {
+            pathEdges.add((long) seeds[i] << 32 | seeds[i + 1]);
+        }
+        out.append("digraph G {\n");
+
+        for (int u : sub.nodes) {
+            String node = graph.word(u);
+            if (path.contains(node)) {
+                out.append("    ").append(node).append(" [label=<<font color=\"red\"><b>").append(node).append("</b></font>>];\n");
+            } else {
+                out.append("    ").append(node).append(";\n");
+            }
+        }
+
+        for (int i = 0; i < sub.edgeCount(); i++) {
+            out.append("    ").append(graph.word(sub.sources[i])).append(" -> ").append(graph.word(sub.targets[i]))
+                    .append(" [label=\"").append(Integer.toString(sub.weights[i])).append('"');
+            if (pathEdges.contains((long) sub.sources[i] << 32 | sub.targets[i])) {
+                out.append(", color=\"red\", penwidth=2");
+            }
+            out.append("];\n");
+        }
+
+        out.append("}");
+    }
+
+    // words 周围 hops 跳的邻域，words 本身标蓝
+    static void writeNeighbourhoodDot(CompactGraph graph, List<String> words, int hops, Appendable out)
+            throws IOException {
+        int[] seeds = new int[words.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = graph.id(words.get(i));
+        }
+        Subgraph sub = Subgraph.around(graph, seeds, hops, Subgraph.MAX_NODES, Subgraph.MAX_EDGES);
+        out.append("digraph G {\n");
+
+        for (int u : sub.nodes) {
+            String node = graph.word(u);
+            if (words.contains(node)) {
+                out.append("    ").append(node).append(" [label=<<font color=\"blue\"><b>").append(node).append("</b></font>>];\n");
+            } else {
+                out.append("    ").append(node).append(";\n");
+            }
+        }
+
+        for (int i = 0; i < sub.edgeCount(); i++) {
+            out.append("    ").append(graph.word(sub.sources[i])).append(" -> ").append(graph.word(sub.targets[i]))
+                    .append(" [label=\"").append(Integer.toString(sub.weights[i])).append("\"];\n");
+        }
+
+        out.append("}");
+    }
+}
@@ -0,0 +1,211 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// 图的二进制快照，全部为大端整数：
+//   magic "TGSN", 格式版本, 结点数 n, 边数 m, 单词字节总数 b
+//   单词起始偏移 int[n + 1], 单词 UTF-8 字节 byte[b], 补齐到 4 字节
+//   出边 offsets int[n + 1], targets int[m], weights int[m]
+//   入边 inOffsets int[n + 1], inSources int[m], inWeights int[m]
+//   末尾 8 字节为前面所有内容的 CRC32
+// 读取时用 FileChannel 内存映射，各段整块拷进 CompactGraph 的数组，几乎不需要解析；
+// 查询用的仍是堆上的数组，所以读入要把整个文件过一遍，耗时与文件大小成正比
+// 校验 CRC 还要再过一遍文件；文件可信（例如刚由本程序写出）时可以跳过，只检查长度和两个 offsets 的末项
+final class GraphSnapshot {
+    static final int MAGIC = 0x5447534E;
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    // 每次映射的窗口大小，避免单个映射超过 2GB
+    private static final long WINDOW = 1L << 28;
+
+    private GraphSnapshot() {
+    }
+
+    static void write(CompactGraph graph, Path file) throws IOException {
+        // 有增量补丁时先合并成连续数组，边编号才能直接按区间写出
+        graph = graph.compacted();
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        byte[][] words = new byte[n][];
+        int wordBytes = 0;
+        for (int id = 0; id < n; id++) {
+            words[id] = graph.word(id).getBytes(StandardCharsets.UTF_8);
+            wordBytes += words[id].length;
+        }
+
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(file);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeInt(wordBytes);
+
+            int position = 0;
+            for (int id = 0; id < n; id++) {
+                out.writeInt(position);
+                position += words[id].length;
+            }
+            out.writeInt(position);
+            for (byte[] word : words) {
+                out.write(word);
+            }
+            for (int i = wordBytes; i % 4 != 0; i++) {
+                out.writeByte(0);
+            }
+
+            for (int u = 0; u < n; u++) {
+                out.writeInt(graph.edgeStart(u));
+            }
+            out.writeInt(m);
+            for (int e = 0; e < m; e++) {
+                out.writeInt(graph.target(e));
+            }
+            for (int e = 0; e < m; e++) {
+                out.writeInt(graph.weight(e));
+            }
+
+            for (int v = 0; v < n; v++) {
+                out.writeInt(graph.inStart(v));
+            }
+            out.writeInt(m);
+            for (int i = 0; i < m; i++) {
+                out.writeInt(graph.source(i));
+            }
+            for (int i = 0; i < m; i++) {
+                out.writeInt(graph.inWeight(i));
+            }
+
+            out.flush();
+            // 校验和本身不参与计算
+            raw.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+        }
+    }
+
+    // 文件开头是否是本版本的快照：magic 和格式版本都要对上
+    static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            return channel.read(header, 0) == 8 && header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION;
+        }
+    }
+
+    static CompactGraph read(Path file) throws IOException {
+        return read(file, true);
+    }
+
+    // verifyChecksum 为 false 时跳过整个文件的 CRC 校验
+    static CompactGraph read(Path file, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8) {
+                throw new IOException("快照文件不完整: " + file);
+            }
+            if (verifyChecksum) {
+                verifyChecksum(channel, size);
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("不是图快照文件: " + file);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("不支持的快照版本: " + version);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            int wordBytes = header.getInt();
+            // 先用头部算出整个文件应有的长度，对不上就不分配任何数组，避免损坏的头部申请巨大内存
+            if (n < 0 || n == Integer.MAX_VALUE || m < 0 || wordBytes < 0
+                    || expectedSize(n, m, wordBytes) != size) {
+                throw new IOException("快照文件头部不符: " + file);
+            }
+
+            long position = HEADER_BYTES;
+            int[] wordOffsets = new int[n + 1];
+            position = readInts(channel, position, wordOffsets);
+            if (wordOffsets[0] != 0 || wordOffsets[n] != wordBytes) {
+                throw new IOException("快照文件内容不符: " + file);
+            }
+            byte[] bytes = new byte[wordBytes];
+            channel.map(FileChannel.MapMode.READ_ONLY, position, wordBytes).get(bytes);
+            position += (wordBytes + 3) & ~3L;
+            String[] words = new String[n];
+            for (int id = 0; id < n; id++) {
+                if (wordOffsets[id + 1] < wordOffsets[id]) {
+                    throw new IOException("快照文件内容不符: " + file);
+                }
+                words[id] = new String(bytes, wordOffsets[id], wordOffsets[id + 1] - wordOffsets[id],
+                        StandardCharsets.UTF_8);
+            }
+
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            int[] weights = new int[m];
+            int[] inOffsets = new int[n + 1];
+            int[] inSources = new int[m];
+            int[] inWeights = new int[m];
+            position = readInts(channel, position, offsets);
+            position = readInts(channel, position, targets);
+            position = readInts(channel, position, weights);
+            position = readInts(channel, position, inOffsets);
+            position = readInts(channel, position, inSources);
+            position = readInts(channel, position, inWeights);
+            if (position != size - 8) {
+                throw new IOException("快照文件长度不符: " + file);
+            }
+            if (offsets[n] != m || inOffsets[n] != m) {
+                throw new IOException("快照文件内容不符: " + file);
+            }
+            return new CompactGraph(new WordDictionary(words), offsets, targets, weights,
+                    inOffsets, inSources, inWeights);
+        }
+    }
+
+    // 按格式算出的文件总长度：头部、单词偏移、补齐后的单词字节、出入边数组、末尾校验和
+    private static long expectedSize(int n, int m, int wordBytes) {
+        return HEADER_BYTES + (n + 1L) * 4 + ((wordBytes + 3L) & ~3L) + (n + 1L) * 4 * 2 + m * 4L * 4 + 8;
+    }
+
+    // 从 position 开始整块读入 dst，按窗口分段映射，返回读完后的位置
+    private static long readInts(FileChannel channel, long position, int[] dst) throws IOException {
+        int done = 0;
+        while (done < dst.length) {
+            int count = (int) Math.min(dst.length - done, WINDOW / 4);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, count * 4L);
+            IntBuffer ints = buffer.asIntBuffer();
+            ints.get(dst, done, count);
+            done += count;
+            position += count * 4L;
+        }
+        return position;
+    }
+
+    private static void verifyChecksum(FileChannel channel, long size) throws IOException {
+        CRC32 crc = new CRC32();
+        long body = size - 8;
+        for (long position = 0; position < body; position += WINDOW) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, body - position)));
+        }
+        long expected = channel.map(FileChannel.MapMode.READ_ONLY, body, 8).getLong();
+        if (crc.getValue() != expected) {
+            throw new IOException("快照校验失败，文件可能已损坏");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+// 图的形状统计：结点数、边数、出入度分布、枢纽词和估算内存
+// 出入度分布按 2 的幂分桶：第 0 桶是度为 0 的结点，第 b 桶是度在 [2^(b-1), 2^b) 之间的结点
+final class GraphStats {
+    static final int TOP_HUBS = 10;
+
+    final long graphVersion;
+    final int nodeCount;
+    final int edgeCount;
+    // 所有边的权重之和，即相邻单词对的个数
+    final long totalWeight;
+    final int maxOutDegree;
+    final int maxInDegree;
+    final long[] outDegrees;
+    final long[] inDegrees;
+    // 按出度从高到低排列的枢纽词及其出度
+    final String[] hubs;
+    final int[] hubDegrees;
+    final long estimatedBytes;
+
+    private GraphStats(CompactGraph graph) {
+        this.graphVersion = graph.version();
+        this.nodeCount = graph.nodeCount();
+        this.edgeCount = graph.edgeCount();
+        long[] out = new long[33];
+        long[] in = new long[33];
+        int maxOut = 0;
+        int maxIn = 0;
+        // 最小堆里保留出度最高的 TOP_HUBS 个结点，打包成 (出度 << 32 | 编号)
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        for (int u = 0; u < nodeCount; u++) {
+            int outDegree = graph.edgeEnd(u) - graph.edgeStart(u);
+            int inDegree = graph.inEnd(u) - graph.inStart(u);
+            out[bucket(outDegree)]++;
+            in[bucket(inDegree)]++;
+            maxOut = Math.max(maxOut, outDegree);
+            maxIn = Math.max(maxIn, inDegree);
+            if (outDegree > 0) {
+                top.add((long) outDegree << 32 | u);
+                if (top.size() > TOP_HUBS) {
+                    top.poll();
+                }
+            }
+        }
+        this.totalWeight = graph.totalWeight();
+        this.maxOutDegree = maxOut;
+        this.maxInDegree = maxIn;
+        this.outDegrees = Arrays.copyOf(out, bucket(maxOut) + 1);
+        this.inDegrees = Arrays.copyOf(in, bucket(maxIn) + 1);
+        this.hubs = new String[top.size()];
+        this.hubDegrees = new int[top.size()];
+        for (int i = top.size() - 1; i >= 0; i--) {
+            long entry = top.poll();
+            hubs[i] = graph.word((int) entry);
+            hubDegrees[i] = (int) (entry >>> 32);
+        }
+        this.estimatedBytes = graph.estimatedBytes();
+    }
+
+    static GraphStats of(CompactGraph graph) {
+        return new GraphStats(graph);
+    }
+
+    private static int bucket(int degree) {
+        return 32 - Integer.numberOfLeadingZeros(degree);
+    }
+
+    // 第 b 个桶的区间说明，例如 "0"、"1"、"2-3"、"4-7"
+    static String bucketLabel(int b) {
+        if (b <= 1) {
+            return Integer.toString(b);
+        }
+        return (1L << (b - 1)) + "-" + ((1L << b) - 1);
+    }
+
+    void appendTo(StringBuilder out) {
+        out.append("nodes ").append(nodeCount).append(", edges ").append(edgeCount)
+                .append(", word pairs ").append(totalWeight)
+                .append(", estimated heap ").append(estimatedBytes >> 10).append(" KB\n");
+        out.append("max out-degree ").append(maxOutDegree).append(", max in-degree ").append(maxInDegree).append('\n');
+        appendDistribution("out-degree", outDegrees, out);
+        appendDistribution("in-degree", inDegrees, out);
+        out.append("top hubs:");
+        for (int i = 0; i < hubs.length; i++) {
+            out.append(' ').append(hubs[i]).append('(').append(hubDegrees[i]).append(')');
+        }
+        out.append('\n');
+    }
+
+    private static void appendDistribution(String name, long[] counts, StringBuilder out) {
+        out.append(name).append(':');
+        for (int b = 0; b < counts.length; b++) {
+            if (counts[b] > 0) {
+                out.append(" [").append(bucketLabel(b)).append("]=").append(counts[b]);
+            }
+        }
+        out.append('\n');
+    }
+}
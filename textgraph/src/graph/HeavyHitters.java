@@ -0,0 +1,201 @@
+package graph;
+
+import java.util.Arrays;
+
+// 容量固定的高频单词对表（Space-Saving 的变体），键是单词对的 64 位哈希
+// 表满时新来的单词对只有估计次数超过表中最小计数才能进来，并顶替计数最小的条目；
+// 最小计数只增不减，所以真实次数超过最终最小计数的单词对最后一定在表里
+// 计数保存在按条目下标索引的数组里，最小堆取最小条目，开放寻址表按键查条目，都不分配对象
+final class HeavyHitters {
+    // 每个条目大约占用的字节数，两个单词按 64 字节估计
+    static final int BYTES_PER_ENTRY = 8 + 2 * 8 + 8 + 4 + 4 + 4 * (8 + 4) + 64;
+
+    private final int capacity;
+    private final long[] keys;
+    private final String[] firsts;
+    private final String[] seconds;
+    private final long[] counts;
+    // 按计数排列的最小堆，heap[i] 是条目下标，position[entry] 是它在堆中的位置
+    private final int[] heap;
+    private final int[] position;
+    // 开放寻址表：slots[s] 是条目下标加一，0 表示空
+    private final long[] slotKeys;
+    private final int[] slots;
+    private final int slotMask;
+    private int size;
+    private long evictions;
+
+    HeavyHitters(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.keys = new long[this.capacity];
+        this.firsts = new String[this.capacity];
+        this.seconds = new String[this.capacity];
+        this.counts = new long[this.capacity];
+        this.heap = new int[this.capacity];
+        this.position = new int[this.capacity];
+        int tableSize = Integer.highestOneBit(this.capacity) * 4;
+        this.slotKeys = new long[tableSize];
+        this.slots = new int[tableSize];
+        this.slotMask = tableSize - 1;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long evictions() {
+        return evictions;
+    }
+
+    // 表满时的最小计数，表没满时为 0
+    long minCount() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    // key 在表里时计数加一并返回 true
+    boolean increment(long key) {
+        int entry = find(key);
+        if (entry < 0) {
+            return false;
+        }
+        counts[entry]++;
+        siftDown(position[entry]);
+        return true;
+    }
+
+    // 以 count 为计数加入一个不在表里的单词对；表满且 count 不超过最小计数时不加入，返回 false
+    boolean offer(long key, String first, String second, long count) {
+        int entry;
+        if (size < capacity) {
+            entry = size;
+            heap[size] = entry;
+            position[entry] = size;
+            size++;
+        } else {
+            entry = heap[0];
+            if (count <= counts[entry]) {
+                return false;
+            }
+            remove(keys[entry]);
+            evictions++;
+        }
+        keys[entry] = key;
+        firsts[entry] = first;
+        seconds[entry] = second;
+        counts[entry] = count;
+        int slot = slot(key);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotKeys[slot] = key;
+        slots[slot] = entry + 1;
+        siftUp(position[entry]);
+        siftDown(position[entry]);
+        return true;
+    }
+
+    long key(int entry) {
+        return keys[entry];
+    }
+
+    String first(int entry) {
+        return firsts[entry];
+    }
+
+    String second(int entry) {
+        return seconds[entry];
+    }
+
+    long count(int entry) {
+        return counts[entry];
+    }
+
+    long estimatedBytes() {
+        return 64 + (long) BYTES_PER_ENTRY * capacity;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ key >>> 29) & slotMask;
+    }
+
+    private int find(long key) {
+        for (int s = slot(key); slots[s] != 0; s = (s + 1) & slotMask) {
+            if (slotKeys[s] == key) {
+                return slots[s] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // 从开放寻址表里删除 key，后面的元素向前挪，不留墓碑
+    private void remove(long key) {
+        int s = slot(key);
+        while (slotKeys[s] != key || slots[s] == 0) {
+            s = (s + 1) & slotMask;
+        }
+        slots[s] = 0;
+        for (int next = (s + 1) & slotMask; slots[next] != 0; next = (next + 1) & slotMask) {
+            int home = slot(slotKeys[next]);
+            // next 的理想位置不在 (s, next] 之间时挪到 s
+            if (((next - home) & slotMask) >= ((next - s) & slotMask)) {
+                slotKeys[s] = slotKeys[next];
+                slots[s] = slots[next];
+                slots[next] = 0;
+                s = next;
+            }
+        }
+    }
+
+    private void siftUp(int i) {
+        int entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[entry]) {
+                break;
+            }
+            place(i, heap[parent]);
+            i = parent;
+        }
+        place(i, entry);
+    }
+
+    private void siftDown(int i) {
+        int entry = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[entry] <= counts[heap[child]]) {
+                break;
+            }
+            place(i, heap[child]);
+            i = child;
+        }
+        place(i, entry);
+    }
+
+    private void place(int i, int entry) {
+        heap[i] = entry;
+        position[entry] = i;
+    }
+
+    // 表中条目按计数从高到低的下标
+    int[] entriesByCount() {
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (long) (Integer.MAX_VALUE - (int) Math.min(counts[i], Integer.MAX_VALUE)) << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] entries = new int[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = (int) order[i];
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,319 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// 两个单词之间的多条路径：Yen 算法求前 k 条无环最短路，以及所有长度相同的最短路
+// 先从终点沿入边做一次反向 Dijkstra，得到每个结点到终点的距离；删去一些边和结点后它仍是下界，
+// 所以每次偏离搜索都以它为启发函数做 A*，通常沿着最短路直达终点，不必从偏离点重新展开整张图
+// 候选路径记下偏离位置，只从偏离位置之后再偏离（Lawler 的改进），同一前缀不会重复搜索
+// 反向距离、偏离搜索的堆和屏蔽标记按线程复用，用版本戳代替清零
+final class KShortestPaths {
+    // 列出等长最短路时的默认条数上限，条数可能随图的大小指数增长
+    static final int DEFAULT_LIMIT = 100;
+
+    private static final ThreadLocal<KShortestPaths> SCRATCH = ThreadLocal.withInitial(KShortestPaths::new);
+
+    // 反向搜索：distance(v) 是 v 到终点的最短距离，previous(v) 是通往终点的下一个结点
+    private final ShortestPathEngine.Frontier toTarget = new ShortestPathEngine.Frontier();
+    // 偏离搜索：distance(v) 是从偏离点到 v 的距离
+    private final ShortestPathEngine.Frontier spur = new ShortestPathEngine.Frontier();
+    // blocked[v] == blockEpoch 时 v 在当前偏离搜索里不能经过
+    private int[] blocked = new int[0];
+    private int blockEpoch;
+    private int[] blockedNext = new int[8];
+    private int blockedNextCount;
+    private CompactGraph graph;
+    private int source;
+    private int target;
+    private int settledCount;
+
+    // 一条候选路径：长度、结点序列和它与上一条路径分叉的位置
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] nodes;
+        final int length;
+        final int deviation;
+
+        Candidate(int[] nodes, int length, int deviation) {
+            this.nodes = nodes;
+            this.length = length;
+            this.deviation = deviation;
+        }
+
+        // 长度短的在前，长度相同时按结点编号的字典序
+        @Override
+        public int compareTo(Candidate other) {
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            for (int i = 0; i < nodes.length && i < other.nodes.length; i++) {
+                if (nodes[i] != other.nodes[i]) {
+                    return Integer.compare(nodes[i], other.nodes[i]);
+                }
+            }
+            return Integer.compare(nodes.length, other.nodes.length);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Candidate && Arrays.equals(nodes, ((Candidate) other).nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+
+    private KShortestPaths() {
+    }
+
+    // 取当前线程的状态，并从 target 做好反向搜索
+    static KShortestPaths prepare(CompactGraph graph, int source, int target) {
+        KShortestPaths paths = SCRATCH.get();
+        paths.reverse(graph, source, target);
+        return paths;
+    }
+
+    // 反向 Dijkstra，可达性索引已经建好时跳过起点到不了的结点
+    private void reverse(CompactGraph graph, int source, int target) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        settledCount = 0;
+        int n = graph.nodeCount();
+        toTarget.reset(n);
+        if (blocked.length < n) {
+            blocked = new int[Math.max(n, blocked.length * 2)];
+            blockEpoch = 0;
+        }
+        ReachabilityIndex index = graph.reachabilityIfBuilt();
+        int sourceComponent = index != null ? index.component(source) : -1;
+        toTarget.visit(target, 0, -1);
+        toTarget.push(target, 0);
+        while (!toTarget.isEmpty()) {
+            long top = toTarget.pop();
+            int u = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > toTarget.distance(u)) {
+                continue;
+            }
+            if ((++settledCount & Cancellation.CHECK_MASK) == 0) {
+                Cancellation.checkpoint();
+            }
+            for (int e = graph.inStart(u); e < graph.inEnd(u); e++) {
+                int v = graph.source(e);
+                if (index != null && !index.mayReachComponent(sourceComponent, index.component(v))) {
+                    continue;
+                }
+                int alt = d + graph.inWeight(e);
+                if (alt < toTarget.distance(v)) {
+                    toTarget.visit(v, alt, u);
+                    toTarget.push(v, alt);
+                }
+            }
+        }
+    }
+
+    // 最短路长度，不可达时为 ShortestPathEngine.UNREACHABLE
+    int shortestLength() {
+        return toTarget.distance(source);
+    }
+
+    // 前 k 条无环路径，按长度从短到长；first 是第一条最短路（含两端），为 null 时沿反向搜索的结果取一条
+    // 起点与终点相同或不可达时返回空列表
+    List<int[]> shortest(int k, int[] first) {
+        List<int[]> accepted = new ArrayList<>();
+        if (source == target || shortestLength() == ShortestPathEngine.UNREACHABLE || k <= 0) {
+            return accepted;
+        }
+        int[] path = first != null ? first : treePath(source);
+        Candidate current = new Candidate(path, shortestLength(), 0);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        Set<Candidate> seen = new HashSet<>();
+        seen.add(current);
+        while (true) {
+            accepted.add(current.nodes);
+            if (accepted.size() == k) {
+                break;
+            }
+            int[] nodes = current.nodes;
+            int rootLength = 0;
+            for (int j = 0; j < nodes.length - 1; j++) {
+                if (j >= current.deviation) {
+                    Candidate candidate = deviate(accepted, nodes, j, rootLength);
+                    if (candidate != null && seen.add(candidate)) {
+                        candidates.add(candidate);
+                    }
+                }
+                rootLength += graph.weight(graph.findEdge(nodes[j], nodes[j + 1]));
+            }
+            current = candidates.poll();
+            if (current == null) {
+                break;
+            }
+        }
+        return accepted;
+    }
+
+    // 从 nodes[j] 偏离：前缀上的结点不能再经过，已有路径在同一前缀之后走过的边不能再走
+    private Candidate deviate(List<int[]> accepted, int[] nodes, int j, int rootLength) {
+        if (++blockEpoch == 0) {
+            Arrays.fill(blocked, 0);
+            blockEpoch = 1;
+        }
+        for (int i = 0; i < j; i++) {
+            blocked[nodes[i]] = blockEpoch;
+        }
+        blockedNextCount = 0;
+        for (int[] path : accepted) {
+            if (path.length > j + 1 && samePrefix(path, nodes, j)) {
+                if (blockedNextCount == blockedNext.length) {
+                    blockedNext = Arrays.copyOf(blockedNext, blockedNextCount * 2);
+                }
+                blockedNext[blockedNextCount++] = path[j + 1];
+            }
+        }
+        int spurLength = search(nodes[j]);
+        if (spurLength == ShortestPathEngine.UNREACHABLE) {
+            return null;
+        }
+        int tail = 0;
+        for (int at = target; at != nodes[j]; at = spur.previous(at)) {
+            tail++;
+        }
+        int[] path = Arrays.copyOf(nodes, j + 1 + tail);
+        for (int at = target, i = path.length - 1; at != nodes[j]; at = spur.previous(at), i--) {
+            path[i] = at;
+        }
+        return new Candidate(path, rootLength + spurLength, j);
+    }
+
+    private static boolean samePrefix(int[] a, int[] b, int j) {
+        for (int i = 0; i <= j; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 从 from 到终点的 A*，启发函数是反向搜索的距离；返回距离，到不了时返回 UNREACHABLE
+    private int search(int from) {
+        spur.reset(graph.nodeCount());
+        spur.visit(from, 0, -1);
+        spur.push(from, toTarget.distance(from));
+        while (!spur.isEmpty()) {
+            long top = spur.pop();
+            int u = (int) top;
+            int g = spur.distance(u);
+            if ((int) (top >>> 32) > g + toTarget.distance(u)) {
+                // 过期的堆元素
+                continue;
+            }
+            if ((++settledCount & Cancellation.CHECK_MASK) == 0) {
+                Cancellation.checkpoint();
+            }
+            if (u == target) {
+                return g;
+            }
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.target(e);
+                int h = toTarget.distance(v);
+                if (h == ShortestPathEngine.UNREACHABLE || blocked[v] == blockEpoch
+                        || (u == from && isBlockedNext(v))) {
+                    continue;
+                }
+                int alt = g + graph.weight(e);
+                if (alt < spur.distance(v)) {
+                    spur.visit(v, alt, u);
+                    spur.push(v, alt + h);
+                }
+            }
+        }
+        return ShortestPathEngine.UNREACHABLE;
+    }
+
+    private boolean isBlockedNext(int v) {
+        for (int i = 0; i < blockedNextCount; i++) {
+            if (blockedNext[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 沿反向搜索的结果从 v 走到终点
+    private int[] treePath(int v) {
+        int count = 1;
+        for (int at = v; at != target; at = toTarget.previous(at)) {
+            count++;
+        }
+        int[] path = new int[count];
+        for (int at = v, i = 0; i < count; at = toTarget.previous(at), i++) {
+            path[i] = at;
+        }
+        return path;
+    }
+
+    // 所有长度等于最短路长度的路径，至多 limit 条，按结点编号的字典序
+    // 只沿“紧”的边走：u 到终点的距离恰好等于边权加上 v 到终点的距离，每条分支都能走到终点
+    List<int[]> allShortest(int limit) {
+        List<int[]> paths = new ArrayList<>();
+        if (source == target || shortestLength() == ShortestPathEngine.UNREACHABLE || limit <= 0) {
+            return paths;
+        }
+        // 深度优先，cursor[i] 是 stack[i] 下一条要看的出边
+        int[] stack = new int[16];
+        int[] cursor = new int[16];
+        int depth = 0;
+        stack[0] = source;
+        cursor[0] = graph.edgeStart(source);
+        for (int steps = 1; depth >= 0; steps++) {
+            if ((steps & Cancellation.CHECK_MASK) == 0) {
+                Cancellation.checkpoint();
+            }
+            int u = stack[depth];
+            if (u == target) {
+                paths.add(Arrays.copyOf(stack, depth + 1));
+                if (paths.size() == limit) {
+                    break;
+                }
+                depth--;
+                continue;
+            }
+            int e = cursor[depth];
+            int end = graph.edgeEnd(u);
+            while (e < end && !tight(u, e)) {
+                e++;
+            }
+            if (e == end) {
+                depth--;
+                continue;
+            }
+            cursor[depth] = e + 1;
+            if (++depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+                cursor = Arrays.copyOf(cursor, depth * 2);
+            }
+            int v = graph.target(e);
+            stack[depth] = v;
+            cursor[depth] = graph.edgeStart(v);
+        }
+        return paths;
+    }
+
+    private boolean tight(int u, int e) {
+        int h = toTarget.distance(graph.target(e));
+        return h != ShortestPathEngine.UNREACHABLE && toTarget.distance(u) == h + graph.weight(e);
+    }
+
+    // 最近一次查询反向搜索和各次偏离搜索出堆的结点数之和
+    int settledCount() {
+        return settledCount;
+    }
+}
@@ -0,0 +1,90 @@
+package graph;
+
+import graph.TextGraph.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 可以一边查询一边追加新文本的图
+// 当前版本放在 AtomicReference 里：读者取一次 snapshot() 就拿到一致的不可变视图，全程不加锁；
+// 写者把一段新文本的边计数攒成增量，在当前版本上叠加出新版本后原子地替换
+final class LiveGraph {
+    private final AtomicReference<CompactGraph> current;
+    // 写者之间串行，保证每次都在最新版本上叠加
+    private final Object writeLock = new Object();
+
+    LiveGraph(CompactGraph graph) {
+        this.current = new AtomicReference<>(graph);
+    }
+
+    // 当前版本，之后的追加不会影响已经拿到的版本
+    CompactGraph snapshot() {
+        return current.get();
+    }
+
+    // 追加一段文本，作为独立的一段：不和之前文本的最后一个单词相连
+    CompactGraph append(String text) {
+        long start = System.nanoTime();
+        Graph delta = new Graph();
+        long[] tokens = {0};
+        WordTokenizer tokenizer = tokenizer(delta, tokens);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        tokenizer.feed(ByteBuffer.wrap(bytes));
+        tokenizer.finish();
+        CompactGraph next = append(delta);
+        Metrics.APPEND.record(System.nanoTime() - start, bytes.length, tokens[0]);
+        return next;
+    }
+
+    // 流式读入一个文本文件并追加
+    CompactGraph append(Path file) throws IOException {
+        long start = System.nanoTime();
+        Graph delta = new Graph();
+        long[] tokens = {0};
+        long bytes = 0;
+        WordTokenizer tokenizer = tokenizer(delta, tokens);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                bytes += buffer.remaining();
+                tokenizer.feed(buffer);
+                buffer.clear();
+            }
+        }
+        tokenizer.finish();
+        CompactGraph next = append(delta);
+        Metrics.APPEND.record(System.nanoTime() - start, bytes, tokens[0]);
+        return next;
+    }
+
+    // 把攒好的边计数叠加到当前版本上并发布，返回新版本
+    CompactGraph append(Graph delta) {
+        if (delta.getAdjList().isEmpty()) {
+            return current.get();
+        }
+        synchronized (writeLock) {
+            CompactGraph next = current.get().withDelta(delta);
+            current.set(next);
+            return next;
+        }
+    }
+
+    // 相邻单词之间加边，最后一个单词也作为结点加入；tokens[0] 累计单词数
+    private static WordTokenizer tokenizer(Graph delta, long[] tokens) {
+        String[] previous = {null};
+        return new WordTokenizer(word -> {
+            tokens[0]++;
+            if (previous[0] != null) {
+                delta.addEdge(previous[0], word);
+            }
+            previous[0] = word;
+            delta.addEdge(word, null);
+        }, false);
+    }
+}
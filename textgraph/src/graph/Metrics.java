@@ -0,0 +1,229 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// 运行指标：建图各阶段的吞吐、各类查询的延迟直方图、缓存命中率和图的形状
+// 热路径上只有 System.nanoTime 和 LongAdder 累加；统计和报告在读取时才计算
+final class Metrics implements TextGraphMXBean {
+    static final LatencyHistogram BRIDGE = new LatencyHistogram("bridge");
+    static final LatencyHistogram SHORTEST_PATH = new LatencyHistogram("shortestPath");
+    static final LatencyHistogram NEW_TEXT = new LatencyHistogram("newText");
+    static final LatencyHistogram WALK = new LatencyHistogram("walk");
+    // 前 k 条最短路和所有等长最短路，单独统计，不混入 shortestPath
+    static final LatencyHistogram K_PATHS = new LatencyHistogram("kPaths");
+    private static final LatencyHistogram[] OPERATIONS = {BRIDGE, SHORTEST_PATH, NEW_TEXT, WALK, K_PATHS};
+
+    // 建图阶段：解析文本、冻结成紧凑图、读快照、追加文本
+    static final Phase PARSE = new Phase("parse");
+    static final Phase COMPACT = new Phase("compact");
+    static final Phase SNAPSHOT = new Phase("snapshot");
+    static final Phase APPEND = new Phase("append");
+    private static final Phase[] PHASES = {PARSE, COMPACT, SNAPSHOT, APPEND};
+
+    private static final Metrics INSTANCE = new Metrics();
+    private static final String OBJECT_NAME = "graph:type=TextGraph";
+
+    private static volatile Supplier<CompactGraph> graph = () -> null;
+    // 图统计要扫描整张图，按图版本缓存
+    private static GraphStats stats;
+
+    // 一个建图阶段的累计次数、耗时、字节数和单词数
+    static final class Phase {
+        final String name;
+        final LongAdder runs = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder tokens = new LongAdder();
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        void record(long elapsedNanos, long byteCount, long tokenCount) {
+            runs.increment();
+            nanos.add(elapsedNanos);
+            bytes.add(byteCount);
+            tokens.add(tokenCount);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // 指定统计哪张图，并注册 JMX；重复调用只更新图
+    static synchronized void register(Supplier<CompactGraph> current) {
+        graph = current;
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            System.out.println("注册 JMX 指标失败: " + e.getMessage());
+        }
+    }
+
+    static synchronized GraphStats stats() {
+        CompactGraph current = graph.get();
+        if (current == null) {
+            return null;
+        }
+        if (stats == null || stats.graphVersion != current.version()) {
+            stats = GraphStats.of(current);
+        }
+        return stats;
+    }
+
+    // 纯文本报告
+    static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("== ingest ==\n");
+        for (Phase phase : PHASES) {
+            long runs = phase.runs.sum();
+            if (runs == 0) {
+                continue;
+            }
+            double seconds = phase.nanos.sum() / 1e9;
+            out.append(String.format(Locale.ROOT, "%-13s runs=%d time=%.1fms bytes=%d tokens=%d",
+                    phase.name, runs, seconds * 1e3, phase.bytes.sum(), phase.tokens.sum()));
+            if (seconds > 0 && phase.bytes.sum() > 0) {
+                out.append(String.format(Locale.ROOT, " %.1fMB/s", phase.bytes.sum() / seconds / (1 << 20)));
+            }
+            if (seconds > 0 && phase.tokens.sum() > 0) {
+                out.append(String.format(Locale.ROOT, " %.0ftokens/s", phase.tokens.sum() / seconds));
+            }
+            out.append('\n');
+        }
+
+        out.append("== latency (us) ==\n");
+        for (LatencyHistogram histogram : OPERATIONS) {
+            out.append(String.format(Locale.ROOT,
+                    "%-13s count=%d mean=%.1f p50<=%.1f p90<=%.1f p99<=%.1f max=%.1f\n",
+                    histogram.name(), histogram.count(), histogram.meanNanos() / 1e3,
+                    histogram.percentileNanos(0.5) / 1e3, histogram.percentileNanos(0.9) / 1e3,
+                    histogram.percentileNanos(0.99) / 1e3, histogram.maxNanos() / 1e3));
+        }
+
+        out.append("== cache ==\n");
+        appendCache(out, "shortestPath", ShortestPathCache.SHARED.hits(), ShortestPathCache.SHARED.misses());
+        appendCache(out, "render", GraphRenderer.SHARED.hits(), GraphRenderer.SHARED.misses());
+
+        GraphStats current = stats();
+        if (current != null) {
+            out.append("== graph ==\n");
+            current.appendTo(out);
+        }
+        return out.toString();
+    }
+
+    private static void appendCache(StringBuilder out, String name, long hits, long misses) {
+        out.append(String.format(Locale.ROOT, "%-13s hits=%d misses=%d hitRate=%.1f%%\n",
+                name, hits, misses, 100 * hitRate(hits, misses)));
+    }
+
+    private static double hitRate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public int getNodeCount() {
+        GraphStats current = stats();
+        return current == null ? 0 : current.nodeCount;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        GraphStats current = stats();
+        return current == null ? 0 : current.edgeCount;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        GraphStats current = stats();
+        return current == null ? 0 : current.estimatedBytes;
+    }
+
+    @Override
+    public String[] getTopHubs() {
+        GraphStats current = stats();
+        if (current == null) {
+            return new String[0];
+        }
+        String[] hubs = new String[current.hubs.length];
+        for (int i = 0; i < hubs.length; i++) {
+            hubs[i] = current.hubs[i] + "(" + current.hubDegrees[i] + ")";
+        }
+        return hubs;
+    }
+
+    @Override
+    public long getIngestedBytes() {
+        return PARSE.bytes.sum() + APPEND.bytes.sum();
+    }
+
+    @Override
+    public long getIngestedTokens() {
+        return PARSE.tokens.sum() + APPEND.tokens.sum();
+    }
+
+    @Override
+    public double getIngestBytesPerSecond() {
+        long nanos = PARSE.nanos.sum() + APPEND.nanos.sum();
+        return nanos == 0 ? 0 : getIngestedBytes() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getIngestTokensPerSecond() {
+        long nanos = PARSE.nanos.sum() + APPEND.nanos.sum();
+        return nanos == 0 ? 0 : getIngestedTokens() * 1e9 / nanos;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (LatencyHistogram histogram : OPERATIONS) {
+            counts.put(histogram.name(), histogram.count());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (LatencyHistogram histogram : OPERATIONS) {
+            means.put(histogram.name(), histogram.meanNanos() / 1e3);
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getP99LatencyMicros() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+        for (LatencyHistogram histogram : OPERATIONS) {
+            p99.put(histogram.name(), histogram.percentileNanos(0.99) / 1e3);
+        }
+        return p99;
+    }
+
+    @Override
+    public double getShortestPathCacheHitRate() {
+        return hitRate(ShortestPathCache.SHARED.hits(), ShortestPathCache.SHARED.misses());
+    }
+
+    @Override
+    public double getRenderCacheHitRate() {
+        return hitRate(GraphRenderer.SHARED.hits(), GraphRenderer.SHARED.misses());
+    }
+
+    @Override
+    public String dump() {
+        return report();
+    }
+}
@@ -0,0 +1,263 @@
+package graph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 整篇文档的桥接词扩写：分块读入，各块在线程池里并行插入桥接词，结果按原顺序写出
+// 分词规则与建图一致：空格、换行是分隔符，其它非字母字符丢弃，字母转小写；\n、\r 和 \r\n 都算换行，
+// 输出原样保留换行符，同一行的单词之间用一个空格分隔，桥接词插在两个单词之间（跨行时插在下一行开头）
+// 块在分隔符处切开，读入时顺便记下每块最后一个单词交给下一块，跨块的单词对照样插入桥接词
+// 各块的随机数发生器按块的顺序从同一个根发生器 split 出来，同一个 seed 的输出和线程数无关；在途的块数有上限，内存有界
+final class NewTextStream {
+    // 每块的字符数，块总在分隔符之后结束，遇到超长单词时会更长
+    static final int CHUNK_CHARS = 1 << 16;
+    // 两端的度都不小于它时求交集较贵，块内记下结果，高频单词对只算一次
+    static final int MEMO_DEGREE = 64;
+
+    private NewTextStream() {
+    }
+
+    // 返回处理的块数
+    static long run(CompactGraph graph, Reader in, Writer out, long seed, int threads) throws IOException {
+        return run(graph, in, out, seed, threads, CHUNK_CHARS);
+    }
+
+    // 块大小不同，随机选择的结果也不同
+    static long run(CompactGraph graph, Reader in, Writer out, long seed, int threads, int chunkChars)
+            throws IOException {
+        int chunkSize = Math.max(1, chunkChars);
+        Iterator<Callable<String>> chunks = new Iterator<Callable<String>>() {
+            private char[] pending = new char[0];
+            private int pendingLength;
+            private boolean eof;
+            // 已经读出的文本的最后一个单词
+            private String last;
+            // 已经读出的文本的最后一行是否已有单词
+            private boolean lineOpen;
+            // 切块在调用方线程里按顺序进行，split 的顺序固定
+            private final SplittableRandom root = new SplittableRandom(seed);
+            private char[] chunk = read();
+
+            @Override
+            public boolean hasNext() {
+                return chunk != null;
+            }
+
+            @Override
+            public Callable<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                char[] text = chunk;
+                String previous = last;
+                boolean open = lineOpen;
+                String tail = lastWord(text);
+                if (tail != null) {
+                    last = tail;
+                }
+                lineOpen = endsInOpenLine(text, lineOpen);
+                SplittableRandom random = root.split();
+                chunk = read();
+                return () -> insertBridgeWords(graph, text, previous, open, random);
+            }
+
+            // 读到至少 chunkSize 个字符，在最后一个分隔符之后切开，剩下的留给下一块；没有输入时返回 null
+            private char[] read() {
+                try {
+                    while (!eof && pendingLength < chunkSize) {
+                        fill();
+                    }
+                    int cut = pendingLength;
+                    if (!eof) {
+                        while (cut > 0 && !isSeparator(pending[cut - 1])) {
+                            cut--;
+                        }
+                        // 整块都是一个单词，继续读到分隔符为止
+                        while (cut == 0 && !eof) {
+                            int from = pendingLength;
+                            fill();
+                            for (int i = from; i < pendingLength; i++) {
+                                if (isSeparator(pending[i])) {
+                                    cut = i + 1;
+                                    break;
+                                }
+                            }
+                        }
+                        if (cut == 0) {
+                            cut = pendingLength;
+                        }
+                    }
+                    if (cut == 0) {
+                        return null;
+                    }
+                    char[] text = Arrays.copyOf(pending, cut);
+                    System.arraycopy(pending, cut, pending, 0, pendingLength - cut);
+                    pendingLength -= cut;
+                    return text;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void fill() throws IOException {
+                if (pending.length - pendingLength < chunkSize) {
+                    pending = Arrays.copyOf(pending, pendingLength + chunkSize * 2);
+                }
+                int n = in.read(pending, pendingLength, pending.length - pendingLength);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    pendingLength += n;
+                }
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        long[] count = {0};
+        try {
+            OrderedBatches.run(pool, Math.max(1, threads) * 2, chunks, text -> {
+                out.write(text);
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        return count[0];
+    }
+
+    static boolean isSeparator(char c) {
+        return c == ' ' || isLineBreak(c);
+    }
+
+    // \r\n 的两个字符各自结束一行，第二行是空的，原样输出后仍是一个 \r\n
+    static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    // 一块文本里的最后一个单词，没有单词时返回 null
+    static String lastWord(char[] text) {
+        int end = text.length;
+        while (end > 0) {
+            while (end > 0 && isSeparator(text[end - 1])) {
+                end--;
+            }
+            int start = end;
+            while (start > 0 && !isSeparator(text[start - 1])) {
+                start--;
+            }
+            String word = normalize(text, start, end);
+            if (!word.isEmpty()) {
+                return word;
+            }
+            end = start;
+        }
+        return null;
+    }
+
+    // 一块文本结束时最后一行是否已有单词；块里没有换行时沿用 open
+    static boolean endsInOpenLine(char[] text, boolean open) {
+        for (int end = text.length; end > 0; ) {
+            if (isLineBreak(text[end - 1])) {
+                return false;
+            }
+            if (isSeparator(text[end - 1])) {
+                end--;
+                continue;
+            }
+            int start = end;
+            while (start > 0 && !isSeparator(text[start - 1])) {
+                start--;
+            }
+            if (!normalize(text, start, end).isEmpty()) {
+                return true;
+            }
+            end = start;
+        }
+        return open;
+    }
+
+    // 只保留字母并转成小写
+    private static String normalize(char[] text, int start, int end) {
+        StringBuilder word = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+            if (c >= 'a' && c <= 'z') {
+                word.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                word.append((char) (c + ('a' - 'A')));
+            }
+        }
+        return word.toString();
+    }
+
+    // 给一块文本插入桥接词；previous 是前面文本的最后一个单词，没有时为 null；
+    // lineOpen 表示这一块接着的那一行前面已有单词，开头要先补一个空格
+    static String insertBridgeWords(CompactGraph graph, char[] text, String previous, boolean lineOpen,
+                                    SplittableRandom random) {
+        StringBuilder out = new StringBuilder(text.length + text.length / 4);
+        int previousId = previous == null ? -1 : graph.id(previous);
+        // 当前输出行是否已经有单词
+        boolean lineStarted = lineOpen;
+        Map<Long, int[]> memo = new HashMap<>();
+        int i = 0;
+        while (i < text.length) {
+            char c = text[i];
+            if (isLineBreak(c)) {
+                out.append(c);
+                lineStarted = false;
+                i++;
+                continue;
+            }
+            if (isSeparator(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length && !isSeparator(text[i])) {
+                i++;
+            }
+            String word = normalize(text, start, i);
+            if (word.isEmpty()) {
+                continue;
+            }
+            int id = graph.id(word);
+            if (previousId >= 0 && id >= 0) {
+                int[] bridges = bridges(graph, previousId, id, memo);
+                if (bridges.length > 0) {
+                    if (lineStarted) {
+                        out.append(' ');
+                    }
+                    out.append(graph.word(bridges[random.nextInt(bridges.length)]));
+                    lineStarted = true;
+                }
+            }
+            if (lineStarted) {
+                out.append(' ');
+            }
+            out.append(word);
+            lineStarted = true;
+            previousId = id;
+        }
+        return out.toString();
+    }
+
+    private static int[] bridges(CompactGraph graph, int u, int w, Map<Long, int[]> memo) {
+        if (graph.edgeEnd(u) - graph.edgeStart(u) < MEMO_DEGREE || graph.inEnd(w) - graph.inStart(w) < MEMO_DEGREE) {
+            return graph.bridges(u, w);
+        }
+        return memo.computeIfAbsent((long) u << 32 | w, key -> graph.bridges(u, w));
+    }
+}
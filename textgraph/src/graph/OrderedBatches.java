@@ -0,0 +1,56 @@
+package graph;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// 并行执行一串批次任务，结果按提交顺序交给 sink
+// 同时在途的批次数不超过 window，输入再大内存也保持有界
+final class OrderedBatches {
+
+    // 按顺序接收每个批次的结果
+    interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    private OrderedBatches() {
+    }
+
+    static <T> void run(ExecutorService pool, int window, Iterator<? extends Callable<T>> batches, Sink<T> sink)
+            throws IOException {
+        ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+        try {
+            while (batches.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < window && batches.hasNext()) {
+                    inFlight.add(pool.submit(batches.next()));
+                }
+                sink.accept(inFlight.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<T> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+}
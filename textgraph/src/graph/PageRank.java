@@ -0,0 +1,244 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// 带权 PageRank：u -> v 的边把 u 的分数按 边权 / u 的出边权重和 分给 v
+// 没有出边的结点（例如文本最后一个单词）的分数均分给所有结点，阻尼系数之外的部分也均分
+// 幂迭代按入边“拉取”：每个结点只写自己的新分数，按入边数切成若干段并行计算，不需要加锁
+final class PageRank {
+    static final double DAMPING = 0.85;
+    // 相邻两轮分数之差的 L1 范数小于它时认为收敛
+    static final double TOLERANCE = 1e-9;
+    static final int MAX_ITERATIONS = 100;
+    // 每个线程分到的段数，段之间入边数大致相同
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final double[] rank;
+    // 分数的前缀和，按分数抽样用
+    private final double[] cumulative;
+    final int iterations;
+    final double residual;
+
+    private PageRank(double[] rank, int iterations, double residual) {
+        this.rank = rank;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.cumulative = new double[rank.length];
+        double sum = 0;
+        for (int v = 0; v < rank.length; v++) {
+            sum += rank[v];
+            cumulative[v] = sum;
+        }
+    }
+
+    static PageRank compute(CompactGraph graph) {
+        return compute(graph, DAMPING, TOLERANCE, MAX_ITERATIONS, Runtime.getRuntime().availableProcessors());
+    }
+
+    static PageRank compute(CompactGraph graph, double damping, double tolerance, int maxIterations, int parallelism) {
+        int n = graph.nodeCount();
+        if (n == 0) {
+            return new PageRank(new double[0], 0, 0);
+        }
+        // 出边权重和的倒数，没有出边时为 0
+        double[] inverseOut = new double[n];
+        for (int u = 0; u < n; u++) {
+            long total = 0;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                total += graph.weight(e);
+            }
+            inverseOut[u] = total == 0 ? 0 : 1.0 / total;
+        }
+
+        Iteration iteration = new Iteration(graph, damping, inverseOut);
+        int[] bounds = split(graph, Math.max(1, parallelism) * CHUNKS_PER_THREAD);
+        int chunks = bounds.length - 1;
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int chunk = c;
+            tasks.add(() -> {
+                iteration.run(chunk, bounds[chunk], bounds[chunk + 1]);
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = parallelism > 1 && chunks > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            int rounds = 0;
+            double residual = Double.MAX_VALUE;
+            while (rounds < maxIterations && residual >= tolerance) {
+                iteration.prepare(chunks);
+                if (pool == null) {
+                    for (int c = 0; c < chunks; c++) {
+                        iteration.run(c, bounds[c], bounds[c + 1]);
+                    }
+                } else {
+                    for (Future<Void> future : pool.invokeAll(tasks)) {
+                        future.get();
+                    }
+                }
+                residual = iteration.finish();
+                rounds++;
+            }
+            return new PageRank(iteration.rank, rounds, residual);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // 把结点切成至多 chunks 段，每段的 (入边数 + 1) 之和大致相同；返回各段边界
+    private static int[] split(CompactGraph graph, int chunks) {
+        int n = graph.nodeCount();
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            total += graph.inEnd(v) - graph.inStart(v) + 1;
+        }
+        long perChunk = Math.max(1, (total + chunks - 1) / chunks);
+        int[] bounds = new int[chunks + 1];
+        int size = 1;
+        long load = 0;
+        for (int v = 0; v < n; v++) {
+            load += graph.inEnd(v) - graph.inStart(v) + 1;
+            if (load >= perChunk && v + 1 < n) {
+                bounds[size++] = v + 1;
+                load = 0;
+            }
+        }
+        bounds[size++] = n;
+        return Arrays.copyOf(bounds, size);
+    }
+
+    // 一轮迭代的状态：读 rank、share，写 next、nextShare，各段只写自己范围内的结点
+    private static final class Iteration {
+        private final CompactGraph graph;
+        private final double damping;
+        private final double[] inverseOut;
+        private double[] rank;
+        private double[] next;
+        // share[u] = rank[u] / u 的出边权重和，即 u 沿单位边权分出去的分数
+        private double[] share;
+        private double[] nextShare;
+        private double dangling;
+        private double base;
+        // 每段的分数变化量和没有出边的结点的分数之和
+        private double[] changes = new double[0];
+        private double[] danglingParts = new double[0];
+
+        Iteration(CompactGraph graph, double damping, double[] inverseOut) {
+            int n = graph.nodeCount();
+            this.graph = graph;
+            this.damping = damping;
+            this.inverseOut = inverseOut;
+            this.rank = new double[n];
+            this.next = new double[n];
+            this.share = new double[n];
+            this.nextShare = new double[n];
+            Arrays.fill(rank, 1.0 / n);
+            for (int u = 0; u < n; u++) {
+                share[u] = rank[u] * inverseOut[u];
+                if (inverseOut[u] == 0) {
+                    dangling += rank[u];
+                }
+            }
+        }
+
+        void prepare(int chunks) {
+            if (changes.length != chunks) {
+                changes = new double[chunks];
+                danglingParts = new double[chunks];
+            }
+            int n = rank.length;
+            base = (1 - damping) / n + damping * dangling / n;
+        }
+
+        void run(int chunk, int from, int to) {
+            double change = 0;
+            double danglingPart = 0;
+            for (int v = from; v < to; v++) {
+                double sum = 0;
+                for (int e = graph.inStart(v); e < graph.inEnd(v); e++) {
+                    sum += share[graph.source(e)] * graph.inWeight(e);
+                }
+                double value = base + damping * sum;
+                change += Math.abs(value - rank[v]);
+                next[v] = value;
+                nextShare[v] = value * inverseOut[v];
+                if (inverseOut[v] == 0) {
+                    danglingPart += value;
+                }
+            }
+            changes[chunk] = change;
+            danglingParts[chunk] = danglingPart;
+        }
+
+        // 交换新旧数组，返回这一轮的变化量
+        double finish() {
+            double[] t = rank;
+            rank = next;
+            next = t;
+            t = share;
+            share = nextShare;
+            nextShare = t;
+            double change = 0;
+            dangling = 0;
+            for (int c = 0; c < changes.length; c++) {
+                change += changes[c];
+                dangling += danglingParts[c];
+            }
+            return change;
+        }
+    }
+
+    double rank(int v) {
+        return rank[v];
+    }
+
+    int nodeCount() {
+        return rank.length;
+    }
+
+    // 分数最高的 k 个结点，从高到低，分数相同时编号小的在前
+    int[] top(int k) {
+        k = Math.min(k, rank.length);
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> rank[a] != rank[b]
+                ? Double.compare(rank[a], rank[b]) : Integer.compare(b, a));
+        for (int v = 0; v < rank.length && k > 0; v++) {
+            heap.add(v);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        int[] top = new int[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return top;
+    }
+
+    // 按分数成比例地抽一个结点
+    int sample(SplittableRandom random) {
+        double pick = random.nextDouble() * cumulative[cumulative.length - 1];
+        int i = Arrays.binarySearch(cumulative, pick);
+        i = i >= 0 ? i + 1 : -(i + 1);
+        return Math.min(i, cumulative.length - 1);
+    }
+
+    long estimatedBytes() {
+        return 64 + 16L * rank.length;
+    }
+}
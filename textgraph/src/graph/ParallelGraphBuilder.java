@@ -0,0 +1,186 @@
+package graph;
+
+import graph.TextGraph.Graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// 并行建图：把文件按字节切成若干块，每块在 fork-join 线程里独立分词并统计部分图，
+// 再两两合并，同时补上跨块边界的那一条边
+final class ParallelGraphBuilder {
+
+    // 每块的大小范围；块数大约是线程数的 4 倍，方便负载均衡
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 64L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelGraphBuilder() {
+    }
+
+    static Graph build(Path file, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long chunk = channel.size() / ((long) Math.max(1, parallelism) * CHUNKS_PER_THREAD);
+            return build(channel, parallelism, Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, chunk)));
+        }
+    }
+
+    // 指定块大小建图，块很小时可以用来检验跨块边界的处理
+    static Graph build(Path file, int parallelism, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return build(channel, parallelism, chunkSize);
+        }
+    }
+
+    private static Graph build(FileChannel channel, int parallelism, long chunkSize) throws IOException {
+        long[] bounds = split(channel, chunkSize);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            Partial all = pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1));
+            all.graph.addEdge(all.last, null);
+            return all.graph;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // 计算各块的起止位置，每个切点都挪到分隔符之后，保证单词不会被切开
+    private static long[] split(FileChannel channel, long chunk) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunk;
+        while (pos < size) {
+            long cut = nextSeparator(channel, pos, probe);
+            if (cut >= size) {
+                break;
+            }
+            bounds.add(cut);
+            pos = cut + chunk;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // 从 pos 开始找第一个分隔符，返回它之后的位置；找不到返回文件末尾
+    private static long nextSeparator(FileChannel channel, long pos, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < n; i++) {
+                if (WordTokenizer.isSeparator(probe.get(i))) {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+    }
+
+    // 一段连续文本的统计结果：内部的边，以及首尾单词（用于和相邻段拼接）
+    private static final class Partial {
+        final Graph graph;
+        String first;
+        String last;
+
+        Partial(Graph graph) {
+            this.graph = graph;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from == 1) {
+                return tokenize(from);
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, bounds, from, mid);
+            left.fork();
+            Partial right = new ChunkTask(channel, bounds, mid, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private Partial tokenize(int index) {
+            long start = bounds[index];
+            long length = bounds[index + 1] - start;
+            Partial partial = new Partial(new Graph());
+            // 只有文件开头那一块需要还原 split 的开头空串
+            WordTokenizer tokenizer = new WordTokenizer(word -> {
+                if (partial.last != null) {
+                    partial.graph.addEdge(partial.last, word);
+                } else {
+                    partial.first = word;
+                }
+                partial.last = word;
+            }, start == 0);
+            try {
+                if (length > 0) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                    tokenizer.feed(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            tokenizer.finish();
+            return partial;
+        }
+    }
+
+    // 合并相邻两段：把较小的图并入较大的图，再补上 left.last -> right.first 这条边
+    private static Partial merge(Partial left, Partial right) {
+        Graph big = left.graph;
+        Graph small = right.graph;
+        if (big.getAdjList().size() < small.getAdjList().size()) {
+            big = right.graph;
+            small = left.graph;
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : small.getAdjList().entrySet()) {
+            String from = entry.getKey();
+            big.addEdge(from, null, 0);
+            for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+                big.addEdge(from, edge.getKey(), edge.getValue());
+            }
+        }
+        if (left.last != null && right.first != null) {
+            big.addEdge(left.last, right.first);
+        }
+        Partial merged = new Partial(big);
+        merged.first = left.first != null ? left.first : right.first;
+        merged.last = right.last != null ? right.last : left.last;
+        return merged;
+    }
+}
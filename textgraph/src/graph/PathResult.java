@@ -0,0 +1,58 @@
+package graph;
+
+import java.util.Collections;
+import java.util.List;
+
+// 最短路径查询的结构化结果，message() 给出与原来一致的提示文本
+final class PathResult {
+    enum Status {
+        FOUND,
+        NO_PATH,
+        LACK_OF_WORDS,
+        INVALID_INPUT,
+        INVALID_K,
+        MISSING_WORD1,
+        MISSING_WORD2,
+        MISSING_BOTH
+    }
+
+    final String word1;
+    final String word2;
+    final Status status;
+    // 从 word1 到 word2 依次经过的单词，没有路径时为空列表
+    final List<String> path;
+    final int length;
+
+    PathResult(String word1, String word2, Status status, List<String> path, int length) {
+        this.word1 = word1;
+        this.word2 = word2;
+        this.status = status;
+        this.path = path;
+        this.length = length;
+    }
+
+    PathResult(String word1, String word2, Status status) {
+        this(word1, word2, status, Collections.<String>emptyList(), 0);
+    }
+
+    String message() {
+        switch (status) {
+            case LACK_OF_WORDS:
+                return "Lack of words";
+            case INVALID_INPUT:
+                return "Invalid input: Input strings must be alphabetic words.";
+            case INVALID_K:
+                return "Invalid input: k must be a positive integer.";
+            case MISSING_WORD1:
+                return "No \"" + word1 + "\" in the graph!";
+            case MISSING_WORD2:
+                return "No \"" + word2 + "\" in the graph!";
+            case MISSING_BOTH:
+                return "No \"" + word1 + "\" and \"" + word2 + "\" in the graph!";
+            case NO_PATH:
+                return "No path from " + word1 + " to " + word2 + "!";
+            default:
+                return "Shortest path: " + String.join(" -> ", path) + " with length " + length;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package graph;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 无界面的查询服务：图只加载一次，多个客户端通过 HTTP 并发查询；默认只监听本机回环地址
+//   GET  /bridge?word1=..&word2=..   桥接词
+//   GET  /path?word1=..[&word2=..]   最短路径，省略 word2 时给出到所有单词的路径；mode=bidirectional 时双向搜索；
+//                                    k=.. 时给出前 k 条无环最短路径（k 须为正整数），all=true 时给出所有等长的最短路径
+//   GET  /newtext?text=..            根据桥接词生成新文本
+//   GET  /walk[?length=..]           一次随机游走；start=pagerank 时按 PageRank 抽起点
+//   GET  /rank[?top=..]              PageRank 最高的单词
+//   POST /append                     请求体是要追加到图中的文本
+//   GET  /metrics                    运行指标报告
+// 查询在有界线程池里执行：队列满时立即返回 503，超过时限未完成返回 504 并中断工作线程，
+// 搜索、游走和生成文本的循环定期检查中断（见 Cancellation），随即放弃计算、空出线程
+// 每个请求开始时取一次图的快照，追加文本不会影响正在进行的查询
+final class QueryServer {
+    private static final int DEFAULT_WALK_LENGTH = 100;
+    private static final int DEFAULT_TOP_WORDS = 20;
+
+    // 一个请求的处理逻辑，返回响应正文
+    private interface Handler {
+        String handle(CompactGraph graph, Map<String, String> params, String body) throws IOException;
+    }
+
+    // 用来区分参数错误，返回 400
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private final LiveGraph graph;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private HttpServer server;
+
+    QueryServer(LiveGraph graph, int threads, int queueSize, long timeoutMillis) {
+        this.graph = graph;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger names = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "query-worker-" + names.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "query-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 按时完成的请求取消超时任务后立即从队列里移除
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    // 在本机回环地址的 port 上开始服务，port 为 0 时随机选一个空闲端口；返回实际端口
+    int start(int port) throws IOException {
+        return start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    // 在指定地址上开始服务；/append 没有鉴权，只有明确要求时才监听回环以外的地址
+    int start(InetAddress address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        context("/bridge", (g, params, body) ->
+                TextGraph.findBridgeWords(g, param(params, "word1"), param(params, "word2")).message());
+        context("/path", (g, params, body) -> {
+            String word2 = params.get("word2");
+            if (word2 == null || word2.isEmpty()) {
+                return TextGraph.calcShortestPathsFrom(g, param(params, "word1"));
+            }
+            if ("true".equalsIgnoreCase(params.get("all"))) {
+                return TextGraph.calcAllShortestPaths(g, param(params, "word1"), word2);
+            }
+            if (params.containsKey("k")) {
+                return TextGraph.calcShortestPaths(g, param(params, "word1"), word2, intParam(params, "k", 1));
+            }
+            ShortestPathEngine.Mode mode = "bidirectional".equalsIgnoreCase(params.get("mode"))
+                    ? ShortestPathEngine.Mode.BIDIRECTIONAL : ShortestPathEngine.Mode.DIJKSTRA;
+            return TextGraph.calcShortestPath(g, param(params, "word1"), word2, mode);
+        });
+        context("/newtext", (g, params, body) ->
+                TextGraph.generateNewText(g, param(params, "text"), ThreadLocalRandom.current()));
+        context("/walk", (g, params, body) -> {
+            if (g.nodeCount() == 0) {
+                return "Graph is empty";
+            }
+            StringBuilder walk = new StringBuilder();
+            boolean rankedStart = "pagerank".equalsIgnoreCase(params.get("start"));
+            WalkEngine engine = g.walkEngineIfBuilt();
+            if (engine == null) {
+                engine = WalkEngine.withoutTables(g);
+            }
+            engine.walker().walk(intParam(params, "length", DEFAULT_WALK_LENGTH), new SplittableRandom(),
+                    walk, rankedStart);
+            return walk.toString();
+        });
+        context("/rank", (g, params, body) -> TextGraph.topRankedWords(g, intParam(params, "top", DEFAULT_TOP_WORDS)));
+        context("/append", (g, params, body) -> {
+            CompactGraph next = graph.append(body);
+            return "nodes " + next.nodeCount() + ", edges " + next.edgeCount();
+        });
+        context("/metrics", (g, params, body) -> Metrics.report());
+        // 分发线程只解析查询参数并交给线程池，请求体的读取和计算都在工作线程上
+        server.setExecutor(null);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        workers.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    private void context(String path, Handler handler) {
+        server.createContext(path, exchange -> {
+            Map<String, String> params;
+            try {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            } catch (IOException | IllegalArgumentException e) {
+                respond(exchange, 400, "Bad request: " + e.getMessage());
+                return;
+            }
+
+            // 先响应的一方（计算完成或超时）负责写回，另一方什么都不做
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicReference<Future<?>> task = new AtomicReference<>();
+            Future<?> timeout = watchdog.schedule(() -> {
+                if (responded.compareAndSet(false, true)) {
+                    Future<?> running = task.get();
+                    if (running != null) {
+                        running.cancel(true);
+                    }
+                    respond(exchange, 504, "Request timed out");
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                task.set(workers.submit(() -> {
+                    if (responded.get()) {
+                        // 排队期间已经超时
+                        return;
+                    }
+                    int status = 200;
+                    String response;
+                    String body;
+                    try {
+                        // 请求体在工作线程上读，慢客户端只占住一个工作线程，不会挡住分发线程上的其它连接
+                        body = readBody(exchange.getRequestBody());
+                    } catch (IOException e) {
+                        if (responded.compareAndSet(false, true)) {
+                            timeout.cancel(false);
+                            respond(exchange, 400, "Bad request: " + e.getMessage());
+                        }
+                        return;
+                    }
+                    try {
+                        response = handler.handle(graph.snapshot(), params, body);
+                    } catch (BadRequest e) {
+                        status = 400;
+                        response = "Bad request: " + e.getMessage();
+                    } catch (IOException | RuntimeException e) {
+                        status = 500;
+                        response = "Error: " + e.getMessage();
+                    }
+                    if (responded.compareAndSet(false, true)) {
+                        timeout.cancel(false);
+                        respond(exchange, status, response);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // 背压：排队的请求已满，让客户端稍后重试
+                timeout.cancel(false);
+                if (responded.compareAndSet(false, true)) {
+                    respond(exchange, 503, "Server busy, try again later");
+                }
+            }
+        });
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // 客户端已断开，没有别的可做
+            exchange.close();
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return params;
+    }
+
+    private static String param(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new BadRequest("missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest("parameter " + name + " must be an integer");
+        }
+    }
+}
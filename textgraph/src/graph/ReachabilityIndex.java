@@ -0,0 +1,272 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// 可达性索引：强连通分量 + 缩点后 DAG 上的 GRAIL 区间标签
+// 强连通分量用迭代版 Tarjan 求出，不会因图很深而栈溢出；Tarjan 按逆拓扑序给出分量，
+// 所以 DAG 上的边总是从编号大的分量指向编号小的分量
+// 每个分量在 LABELS 次随机顺序的深度优先遍历里各得到一个区间 [low, post]，
+// 能到达的分量的区间一定被包含；任何一个区间不包含就一定不可达，O(1) 判定
+final class ReachabilityIndex {
+    private static final int LABELS = 3;
+    private static final long SEED = 0x5EED5EEDL;
+
+    private final int[] component;
+    private final int componentCount;
+    // 缩点后的 DAG，CSR 形式，每个分量的后继去重
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+    // 第 c 个分量的第 i 个区间是 [low[c * LABELS + i], post[c * LABELS + i]]
+    private final int[] low;
+    private final int[] post;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // 精确判定时 DAG 上深度优先搜索用的临时状态，按线程复用
+    private static final class Scratch {
+        int[] stamp = new int[0];
+        int[] stack = new int[16];
+        int epoch;
+    }
+
+    ReachabilityIndex(CompactGraph graph) {
+        int n = graph.nodeCount();
+        this.component = new int[n];
+        this.componentCount = tarjan(graph, component);
+
+        // 缩点：统计每个分量的出边，排序去重
+        int[] counts = new int[componentCount + 1];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                if (component[graph.target(e)] != component[u]) {
+                    counts[component[u] + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < componentCount; c++) {
+            counts[c + 1] += counts[c];
+        }
+        int[] targets = new int[counts[componentCount]];
+        int[] fill = Arrays.copyOf(counts, componentCount);
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int cv = component[graph.target(e)];
+                if (cv != component[u]) {
+                    targets[fill[component[u]]++] = cv;
+                }
+            }
+        }
+        this.dagOffsets = new int[componentCount + 1];
+        int size = 0;
+        for (int c = 0; c < componentCount; c++) {
+            dagOffsets[c] = size;
+            Arrays.sort(targets, counts[c], counts[c + 1]);
+            for (int i = counts[c]; i < counts[c + 1]; i++) {
+                if (i == counts[c] || targets[i] != targets[i - 1]) {
+                    targets[size++] = targets[i];
+                }
+            }
+        }
+        dagOffsets[componentCount] = size;
+        this.dagTargets = Arrays.copyOf(targets, size);
+
+        this.low = new int[componentCount * LABELS];
+        this.post = new int[componentCount * LABELS];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < LABELS; i++) {
+            label(i, random);
+        }
+    }
+
+    // 迭代版 Tarjan，把每个结点的分量编号写入 component，返回分量数
+    private static int tarjan(CompactGraph graph, int[] component) {
+        int n = graph.nodeCount();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] nextEdge = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int count = 0;
+        int sp = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            calls[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            nextEdge[root] = graph.edgeStart(root);
+            stack[sp++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                int u = calls[depth - 1];
+                if (nextEdge[u] < graph.edgeEnd(u)) {
+                    int v = graph.target(nextEdge[u]++);
+                    if (index[v] < 0) {
+                        index[v] = lowLink[v] = counter++;
+                        nextEdge[v] = graph.edgeStart(v);
+                        stack[sp++] = v;
+                        onStack[v] = true;
+                        calls[depth++] = v;
+                    } else if (onStack[v]) {
+                        lowLink[u] = Math.min(lowLink[u], index[v]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (lowLink[u] == index[u]) {
+                    int v;
+                    do {
+                        v = stack[--sp];
+                        onStack[v] = false;
+                        component[v] = count;
+                    } while (v != u);
+                    count++;
+                }
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[u]);
+                }
+            }
+        }
+        return count;
+    }
+
+    // 第 i 次随机顺序的后序遍历：post 是后序编号，low 是子树（含已访问过的后继）里最小的后序编号
+    private void label(int i, SplittableRandom random) {
+        int[] order = new int[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            order[c] = c;
+        }
+        for (int k = componentCount - 1; k > 0; k--) {
+            int j = random.nextInt(k + 1);
+            int t = order[k];
+            order[k] = order[j];
+            order[j] = t;
+        }
+        // 每个分量的后继从随机位置开始轮转访问
+        int[] rotation = new int[componentCount];
+        int[] visited = new int[componentCount];
+        int[] calls = new int[componentCount];
+        int next = 0;
+        for (int root : order) {
+            if (visited[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            calls[depth++] = root;
+            start(root, i, random, rotation, visited);
+            while (depth > 0) {
+                int c = calls[depth - 1];
+                int degree = dagOffsets[c + 1] - dagOffsets[c];
+                int step = visited[c] - 1;
+                if (step < degree) {
+                    visited[c]++;
+                    int child = dagTargets[dagOffsets[c] + (rotation[c] + step) % degree];
+                    if (visited[child] == 0) {
+                        start(child, i, random, rotation, visited);
+                        calls[depth++] = child;
+                    } else {
+                        low[c * LABELS + i] = Math.min(low[c * LABELS + i], low[child * LABELS + i]);
+                    }
+                    continue;
+                }
+                depth--;
+                post[c * LABELS + i] = next;
+                low[c * LABELS + i] = Math.min(low[c * LABELS + i], next);
+                next++;
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    low[parent * LABELS + i] = Math.min(low[parent * LABELS + i], low[c * LABELS + i]);
+                }
+            }
+        }
+    }
+
+    private void start(int c, int i, SplittableRandom random, int[] rotation, int[] visited) {
+        int degree = dagOffsets[c + 1] - dagOffsets[c];
+        rotation[c] = degree == 0 ? 0 : random.nextInt(degree);
+        // visited[c] - 1 是下一个要访问的后继序号
+        visited[c] = 1;
+        low[c * LABELS + i] = Integer.MAX_VALUE;
+    }
+
+    int component(int v) {
+        return component[v];
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    // 只看标签的快速判定：返回 false 时分量 from 一定到不了分量 to，返回 true 时可能到得了
+    boolean mayReachComponent(int from, int to) {
+        if (from == to) {
+            return true;
+        }
+        // 边只从编号大的分量指向编号小的分量
+        if (from < to) {
+            return false;
+        }
+        for (int i = 0; i < LABELS; i++) {
+            int a = from * LABELS + i;
+            int b = to * LABELS + i;
+            if (low[b] < low[a] || post[b] > post[a]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 结点 u 能否到达结点 v，精确结果；绝大多数不可达的情况只看标签就能否定
+    boolean reachable(int u, int v) {
+        int from = component[u];
+        int to = component[v];
+        if (!mayReachComponent(from, to)) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+        // 标签无法否定时在 DAG 上搜索，标签排除的分量不进栈
+        Scratch scratch = SCRATCH.get();
+        if (scratch.stamp.length < componentCount) {
+            scratch.stamp = new int[componentCount];
+            scratch.epoch = 0;
+        }
+        if (++scratch.epoch == 0) {
+            Arrays.fill(scratch.stamp, 0);
+            scratch.epoch = 1;
+        }
+        int epoch = scratch.epoch;
+        int[] stamp = scratch.stamp;
+        int sp = 0;
+        scratch.stack[sp++] = from;
+        stamp[from] = epoch;
+        while (sp > 0) {
+            int c = scratch.stack[--sp];
+            for (int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++) {
+                int child = dagTargets[i];
+                if (child == to) {
+                    return true;
+                }
+                if (stamp[child] != epoch && mayReachComponent(child, to)) {
+                    stamp[child] = epoch;
+                    if (sp == scratch.stack.length) {
+                        scratch.stack = Arrays.copyOf(scratch.stack, sp * 2);
+                    }
+                    scratch.stack[sp++] = child;
+                }
+            }
+        }
+        return false;
+    }
+
+    long estimatedBytes() {
+        return 64 + 4L * (component.length + dagOffsets.length + dagTargets.length + low.length + post.length);
+    }
+}
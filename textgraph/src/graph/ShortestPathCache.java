@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// 最短路树的 LRU 缓存，按 (图版本, 起点) 区分，同时限制条目数和估算内存
+// 只有显式要整棵树的查询（calcShortestPathsFrom）使用它，点对点查询不查也不填
+final class ShortestPathCache {
+    static final ShortestPathCache SHARED = new ShortestPathCache(64, 256L << 20);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    ShortestPathCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    // 只查缓存，没有时返回 null
+    synchronized ShortestPathTree get(CompactGraph graph, int source) {
+        ShortestPathTree tree = trees.get(new Key(graph.version(), source));
+        if (tree != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tree;
+    }
+
+    // 查缓存，没有时计算并放入缓存；计算在锁外进行
+    ShortestPathTree tree(CompactGraph graph, int source) {
+        ShortestPathTree tree = get(graph, source);
+        if (tree == null) {
+            tree = ShortestPathTree.compute(graph, source);
+            put(tree);
+        }
+        return tree;
+    }
+
+    synchronized void put(ShortestPathTree tree) {
+        ShortestPathTree old = trees.put(new Key(tree.graphVersion(), tree.source()), tree);
+        if (old != null) {
+            bytes -= old.estimatedBytes();
+        }
+        bytes += tree.estimatedBytes();
+        // 按最久未使用的顺序淘汰，至少保留刚放入的这一棵
+        Iterator<ShortestPathTree> it = trees.values().iterator();
+        while ((trees.size() > maxEntries || bytes > maxBytes) && trees.size() > 1) {
+            bytes -= it.next().estimatedBytes();
+            it.remove();
+        }
+    }
+
+    synchronized void clear() {
+        trees.clear();
+        bytes = 0;
+    }
+
+    synchronized int size() {
+        return trees.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    private static final class Key {
+        final long version;
+        final int source;
+
+        Key(long version, int source) {
+            this.version = version;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && source == other.source;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version) * 31 + source;
+        }
+    }
+
+}
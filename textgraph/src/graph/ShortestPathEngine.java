@@ -0,0 +1,280 @@
+package graph;
+
+import java.util.Arrays;
+
+// Dijkstra 最短路引擎：二叉堆 + 按结点编号索引的基本类型数组，另有利用入边索引的双向搜索
+// 每个线程复用一份临时状态，用版本戳代替清零，重复查询不再分配内存
+final class ShortestPathEngine {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<Search> SCRATCH = ThreadLocal.withInitial(Search::new);
+    private static final ThreadLocal<BidirectionalSearch> BIDIRECTIONAL_SCRATCH =
+            ThreadLocal.withInitial(BidirectionalSearch::new);
+
+    // 点到点查询的搜索方式
+    enum Mode {
+        DIJKSTRA,
+        BIDIRECTIONAL
+    }
+
+    private ShortestPathEngine() {
+    }
+
+    // 取当前线程的临时状态，保证能容纳 nodeCount 个结点
+    static Search search(int nodeCount) {
+        Search search = SCRATCH.get();
+        search.reset(nodeCount);
+        return search;
+    }
+
+    // 取当前线程的双向搜索状态，run 时按图的大小重置
+    static BidirectionalSearch bidirectionalSearch() {
+        return BIDIRECTIONAL_SCRATCH.get();
+    }
+
+    // 一个方向的搜索状态：距离、前驱和二叉堆，按结点编号索引
+    static class Frontier {
+        private int[] distance = new int[0];
+        private int[] previous = new int[0];
+        // stamp[v] == epoch 时 distance[v]、previous[v] 才有效
+        private int[] stamp = new int[0];
+        private int epoch;
+        // 堆元素把 (距离, 结点编号) 拼成一个 long，距离相同时编号小的先出堆
+        private long[] heap = new long[64];
+        private int heapSize;
+
+        void reset(int nodeCount) {
+            if (stamp.length < nodeCount) {
+                int capacity = Math.max(nodeCount, stamp.length * 2);
+                distance = new int[capacity];
+                previous = new int[capacity];
+                stamp = new int[capacity];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+            heapSize = 0;
+        }
+
+        int distance(int v) {
+            return stamp[v] == epoch ? distance[v] : UNREACHABLE;
+        }
+
+        // 最短路上 v 的前驱，没有时返回 -1（包括起点本身）；反向搜索里是通往终点的下一个结点
+        int previous(int v) {
+            return stamp[v] == epoch ? previous[v] : -1;
+        }
+
+        void visit(int v, int d, int from) {
+            stamp[v] = epoch;
+            distance[v] = d;
+            previous[v] = from;
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        // 堆顶元素的距离，堆为空时返回 UNREACHABLE
+        int peekDistance() {
+            return heapSize == 0 ? UNREACHABLE : (int) (heap[0] >>> 32);
+        }
+
+        void push(int v, int d) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heapSize * 2);
+            }
+            long item = (long) d << 32 | v;
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= item) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = item;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+
+    static final class Search extends Frontier {
+        private int settledCount;
+
+        @Override
+        void reset(int nodeCount) {
+            super.reset(nodeCount);
+            settledCount = 0;
+        }
+
+        // 从 source 出发，target 出堆后停止；target 为 -1 时求出到所有可达结点的最短路
+        // 有 target 且可达性索引已经建好时跳过标签判定到不了 target 的结点：这些结点没有指向能到达 target 的结点的边，
+        // 跳过它们不会改变其余结点的距离和前驱；索引还没建好时照常搜索
+        void run(CompactGraph graph, int source, int target) {
+            ReachabilityIndex index = target >= 0 ? graph.reachabilityIfBuilt() : null;
+            int targetComponent = index != null ? index.component(target) : -1;
+            visit(source, 0, -1);
+            push(source, 0);
+            while (!isEmpty()) {
+                long top = pop();
+                int u = (int) top;
+                int d = (int) (top >>> 32);
+                if (d > distance(u)) {
+                    // 过期的堆元素
+                    continue;
+                }
+                if ((++settledCount & Cancellation.CHECK_MASK) == 0) {
+                    Cancellation.checkpoint();
+                }
+                if (u == target) {
+                    break;
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.target(e);
+                    if (index != null && !index.mayReachComponent(index.component(v), targetComponent)) {
+                        continue;
+                    }
+                    int alt = d + graph.weight(e);
+                    if (alt < distance(v)) {
+                        visit(v, alt, u);
+                        push(v, alt);
+                    }
+                }
+            }
+        }
+
+        // 最近一次 run 出堆确定的结点数
+        int settledCount() {
+            return settledCount;
+        }
+    }
+
+    // 双向 Dijkstra：正向沿出边从起点搜索，反向沿入边从终点搜索，每次扩展堆顶距离较小的一侧
+    // 记录目前找到的最短 s-t 路径长度 best，两侧堆顶距离之和不小于 best 时停止，best 即为最短路长度
+    static final class BidirectionalSearch {
+        private final Frontier forward = new Frontier();
+        private final Frontier backward = new Frontier();
+        private int meeting;
+        private int length;
+        private int settledCount;
+
+        void run(CompactGraph graph, int source, int target) {
+            int n = graph.nodeCount();
+            forward.reset(n);
+            backward.reset(n);
+            meeting = -1;
+            length = UNREACHABLE;
+            settledCount = 0;
+            if (source == target) {
+                // 与单向搜索一致：起点到自身不算一条路径
+                return;
+            }
+            // 索引还没建好时不剪枝
+            ReachabilityIndex index = graph.reachabilityIfBuilt();
+            int sourceComponent = index != null ? index.component(source) : -1;
+            int targetComponent = index != null ? index.component(target) : -1;
+            long best = UNREACHABLE;
+            forward.visit(source, 0, -1);
+            forward.push(source, 0);
+            backward.visit(target, 0, -1);
+            backward.push(target, 0);
+            while (!forward.isEmpty() && !backward.isEmpty()) {
+                if ((long) forward.peekDistance() + backward.peekDistance() >= best) {
+                    break;
+                }
+                boolean forwardSide = forward.peekDistance() <= backward.peekDistance();
+                Frontier side = forwardSide ? forward : backward;
+                Frontier other = forwardSide ? backward : forward;
+                long top = side.pop();
+                int u = (int) top;
+                int d = (int) (top >>> 32);
+                if (d > side.distance(u)) {
+                    continue;
+                }
+                if ((++settledCount & Cancellation.CHECK_MASK) == 0) {
+                    Cancellation.checkpoint();
+                }
+                int from = forwardSide ? graph.edgeStart(u) : graph.inStart(u);
+                int to = forwardSide ? graph.edgeEnd(u) : graph.inEnd(u);
+                for (int e = from; e < to; e++) {
+                    int v = forwardSide ? graph.target(e) : graph.source(e);
+                    // 正向跳过到不了终点的结点，反向跳过起点到不了的结点
+                    if (index != null && (forwardSide ? !index.mayReachComponent(index.component(v), targetComponent)
+                            : !index.mayReachComponent(sourceComponent, index.component(v)))) {
+                        continue;
+                    }
+                    int alt = d + (forwardSide ? graph.weight(e) : graph.inWeight(e));
+                    if (alt < side.distance(v)) {
+                        side.visit(v, alt, u);
+                        side.push(v, alt);
+                    }
+                    int rest = other.distance(v);
+                    if (rest != UNREACHABLE && (long) side.distance(v) + rest < best) {
+                        best = (long) side.distance(v) + rest;
+                        meeting = v;
+                    }
+                }
+            }
+            if (meeting >= 0) {
+                length = (int) best;
+            }
+        }
+
+        // 最短路长度，不可达时为 UNREACHABLE
+        int length() {
+            return length;
+        }
+
+        // 从起点到终点的结点序列（含两端），不可达时返回 null
+        int[] path() {
+            if (meeting < 0) {
+                return null;
+            }
+            int head = 0;
+            for (int at = meeting; at >= 0; at = forward.previous(at)) {
+                head++;
+            }
+            int tail = 0;
+            for (int at = backward.previous(meeting); at >= 0; at = backward.previous(at)) {
+                tail++;
+            }
+            int[] path = new int[head + tail];
+            int i = head - 1;
+            for (int at = meeting; at >= 0; at = forward.previous(at)) {
+                path[i--] = at;
+            }
+            i = head;
+            for (int at = backward.previous(meeting); at >= 0; at = backward.previous(at)) {
+                path[i++] = at;
+            }
+            return path;
+        }
+
+        // 两侧出堆确定的结点数之和
+        int settledCount() {
+            return settledCount;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package graph;
+
+// 单源最短路树：从 source 到所有可达结点的距离和前驱，构造后不可变
+final class ShortestPathTree {
+    private final long graphVersion;
+    private final int source;
+    private final int[] distance;
+    private final int[] previous;
+
+    private ShortestPathTree(long graphVersion, int source, int[] distance, int[] previous) {
+        this.graphVersion = graphVersion;
+        this.source = source;
+        this.distance = distance;
+        this.previous = previous;
+    }
+
+    // 一次 Dijkstra 求出整棵树
+    static ShortestPathTree compute(CompactGraph graph, int source) {
+        int n = graph.nodeCount();
+        ShortestPathEngine.Search search = ShortestPathEngine.search(n);
+        search.run(graph, source, -1);
+        int[] distance = new int[n];
+        int[] previous = new int[n];
+        for (int v = 0; v < n; v++) {
+            distance[v] = search.distance(v);
+            previous[v] = search.previous(v);
+        }
+        return new ShortestPathTree(graph.version(), source, distance, previous);
+    }
+
+    long graphVersion() {
+        return graphVersion;
+    }
+
+    int source() {
+        return source;
+    }
+
+    // 到 v 的最短距离，不可达时为 ShortestPathEngine.UNREACHABLE
+    int distance(int v) {
+        return distance[v];
+    }
+
+    // v 在树上的前驱，起点和不可达结点为 -1
+    int previous(int v) {
+        return previous[v];
+    }
+
+    // 从起点到 v 的路径（含两端），v 不可达或就是起点时返回 null
+    int[] path(int v) {
+        if (previous[v] < 0) {
+            return null;
+        }
+        int length = 1;
+        for (int at = v; previous[at] >= 0; at = previous[at]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int at = v, i = length - 1; at >= 0; at = previous[at], i--) {
+            path[i] = at;
+        }
+        return path;
+    }
+
+    // 估算占用的堆内存，缓存按它限制总大小
+    long estimatedBytes() {
+        return 2L * (16 + 4L * distance.length) + 32;
+    }
+
+}
@@ -0,0 +1,425 @@
+package graph;
+
+import java.util.Arrays;
+
+// 渲染前抽取的子图：结点编号升序排列，边按 (起点, 终点) 升序排列
+// 整张图超过 MAX_NODES 个结点或 MAX_EDGES 条边时 Graphviz 已经很难在一秒内排版，只渲染抽取出的部分：
+//   around：给定单词周围 k 跳的邻域，每个结点只展开权重最高的 FANOUT 个邻居，耗时与子图规模成正比；
+//           每个结点按权重排好的前 HeavyNeighbours.PREFIX 个邻居按图版本缓存，展开一个结点通常只看 O(FANOUT) 个
+//   heaviest：整张图里权重最高的 n 条边，按图版本缓存一份排好序的前 HeavyEdges.LIMIT 条
+final class Subgraph {
+    static final int MAX_NODES = 150;
+    static final int MAX_EDGES = 300;
+    static final int FANOUT = 8;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    final CompactGraph graph;
+    final int[] nodes;
+    final int[] sources;
+    final int[] targets;
+    final int[] weights;
+
+    private Subgraph(CompactGraph graph, int[] nodes, int[] sources, int[] targets, int[] weights) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.sources = sources;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    // 结点标记：selected[v] == epoch 表示已选中，seed[v] == epoch 表示是给定的单词
+    private static final class Scratch {
+        int[] selected = new int[0];
+        int[] seed = new int[0];
+        int epoch;
+
+        void reset(int nodeCount) {
+            if (selected.length < nodeCount) {
+                int capacity = Math.max(nodeCount, selected.length * 2);
+                selected = new int[capacity];
+                seed = new int[capacity];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(selected, 0);
+                Arrays.fill(seed, 0);
+                epoch = 1;
+            }
+        }
+    }
+
+    // 整张图能否直接渲染
+    static boolean fits(CompactGraph graph) {
+        return graph.nodeCount() <= MAX_NODES && graph.edgeCount() <= MAX_EDGES;
+    }
+
+    int nodeCount() {
+        return nodes.length;
+    }
+
+    int edgeCount() {
+        return sources.length;
+    }
+
+    boolean contains(int v) {
+        return Arrays.binarySearch(nodes, v) >= 0;
+    }
+
+    // 整张图
+    static Subgraph whole(CompactGraph graph) {
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        int[] nodes = new int[n];
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        int size = 0;
+        for (int u = 0; u < n; u++) {
+            nodes[u] = u;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                sources[size] = u;
+                targets[size] = graph.target(e);
+                weights[size] = graph.weight(e);
+                size++;
+            }
+        }
+        return new Subgraph(graph, nodes, sources, targets, weights);
+    }
+
+    // 渲染整张图时用：放得下就是整张图，否则是权重最高的 MAX_EDGES 条边
+    static Subgraph forRendering(CompactGraph graph) {
+        return fits(graph) ? whole(graph) : heaviest(graph, MAX_EDGES);
+    }
+
+    // 高亮渲染时用：放得下就是整张图，否则是高亮单词和它们的一跳邻居
+    static Subgraph forHighlight(CompactGraph graph, int[] seeds) {
+        return fits(graph) ? whole(graph) : around(graph, seeds, 1, MAX_NODES, MAX_EDGES);
+    }
+
+    // seeds 周围 hops 跳之内的结点（出边、入边都算），至多 maxNodes 个结点、maxEdges 条边
+    // 逐层展开，每个结点只展开权重最高的 FANOUT 个邻居；seeds 本身总会选中，seeds 之间的边优先保留
+    static Subgraph around(CompactGraph graph, int[] seeds, int hops, int maxNodes, int maxEdges) {
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(graph.nodeCount());
+        int epoch = scratch.epoch;
+        int[] selected = new int[Math.max(16, seeds.length)];
+        int size = 0;
+        for (int s : seeds) {
+            if (s >= 0 && scratch.selected[s] != epoch) {
+                scratch.selected[s] = epoch;
+                scratch.seed[s] = epoch;
+                selected = grow(selected, size);
+                selected[size++] = s;
+            }
+        }
+
+        // 当前层是 selected[layerStart, layerEnd)
+        int layerStart = 0;
+        int[] best = new int[FANOUT];
+        int[] bestWeights = new int[FANOUT];
+        for (int hop = 0; hop < hops && size < maxNodes; hop++) {
+            int layerEnd = size;
+            for (int i = layerStart; i < layerEnd && size < maxNodes; i++) {
+                int u = selected[i];
+                int count = heaviestNeighbours(graph, u, scratch, best, bestWeights);
+                for (int j = 0; j < count && size < maxNodes; j++) {
+                    int v = best[j];
+                    if (scratch.selected[v] != epoch) {
+                        scratch.selected[v] = epoch;
+                        selected = grow(selected, size);
+                        selected[size++] = v;
+                    }
+                }
+            }
+            layerStart = layerEnd;
+        }
+
+        int[] nodes = Arrays.copyOf(selected, size);
+        Arrays.sort(nodes);
+        return induced(graph, nodes, scratch, maxEdges);
+    }
+
+    // u 的出边和入边邻居里还没选中的、权重最高的至多 FANOUT 个，写入 best，返回个数
+    // 同一个邻居出边、入边都有时按较大的权重算，可能出现两次，调用方会去重
+    // 先在缓存的前缀里找，前缀里没选中的不够且前缀没有包含全部邻居时才扫整个邻接表
+    private static int heaviestNeighbours(CompactGraph graph, int u, Scratch scratch, int[] best, int[] bestWeights) {
+        HeavyNeighbours heavy = graph.heavyNeighbours();
+        int count = 0;
+        for (int i = heavy.offsets[u]; i < heavy.offsets[u + 1] && count < best.length; i++) {
+            int v = heavy.neighbours[i];
+            if (scratch.selected[v] != scratch.epoch) {
+                best[count++] = v;
+            }
+        }
+        if (count == best.length || !heavy.truncated(graph, u)) {
+            return count;
+        }
+        return scanNeighbours(graph, u, scratch, best, bestWeights);
+    }
+
+    // 扫描 u 的全部出边和入边，结果与 heaviestNeighbours 相同
+    private static int scanNeighbours(CompactGraph graph, int u, Scratch scratch, int[] best, int[] bestWeights) {
+        int count = 0;
+        for (int side = 0; side < 2; side++) {
+            boolean out = side == 0;
+            int from = out ? graph.edgeStart(u) : graph.inStart(u);
+            int to = out ? graph.edgeEnd(u) : graph.inEnd(u);
+            for (int e = from; e < to; e++) {
+                int v = out ? graph.target(e) : graph.source(e);
+                if (scratch.selected[v] == scratch.epoch) {
+                    continue;
+                }
+                int w = out ? graph.weight(e) : graph.inWeight(e);
+                if (count == best.length && w <= bestWeights[count - 1]) {
+                    continue;
+                }
+                // 插入排序，best 按权重从高到低
+                int i = count < best.length ? count++ : count - 1;
+                while (i > 0 && bestWeights[i - 1] < w) {
+                    best[i] = best[i - 1];
+                    bestWeights[i] = bestWeights[i - 1];
+                    i--;
+                }
+                best[i] = v;
+                bestWeights[i] = w;
+            }
+        }
+        return count;
+    }
+
+    // 选中结点之间的所有边，超过 maxEdges 条时保留两端都是 seed 的边和权重最高的边
+    private static Subgraph induced(CompactGraph graph, int[] nodes, Scratch scratch, int maxEdges) {
+        int epoch = scratch.epoch;
+        Edges edges = new Edges();
+        for (int u : nodes) {
+            int start = graph.edgeStart(u);
+            int end = graph.edgeEnd(u);
+            if (end - start <= nodes.length) {
+                for (int e = start; e < end; e++) {
+                    if (scratch.selected[graph.target(e)] == epoch) {
+                        edges.add(u, graph.target(e), graph.weight(e));
+                    }
+                }
+            } else {
+                // 出边比选中的结点还多时（枢纽词），逐个二分查找
+                for (int v : nodes) {
+                    int e = graph.findEdge(u, v);
+                    if (e >= 0) {
+                        edges.add(u, v, graph.weight(e));
+                    }
+                }
+            }
+        }
+        int size = edges.size;
+        if (size <= maxEdges) {
+            return new Subgraph(graph, nodes, Arrays.copyOf(edges.sources, size), Arrays.copyOf(edges.targets, size),
+                    Arrays.copyOf(edges.weights, size));
+        }
+
+        // 两端都是 seed 的边优先级最高，其余按权重；同优先级时保留靠前的边
+        // 每条边打包成 (优先级取反 << 32 | 下标)，升序排序后取前 maxEdges 条，再按下标恢复原来的顺序
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            boolean seeds = scratch.seed[edges.sources[i]] == epoch && scratch.seed[edges.targets[i]] == epoch;
+            long priority = seeds ? Integer.MAX_VALUE : edges.weights[i] - 1L;
+            order[i] = (Integer.MAX_VALUE - priority) << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] kept = new int[maxEdges];
+        for (int i = 0; i < maxEdges; i++) {
+            kept[i] = (int) order[i];
+        }
+        Arrays.sort(kept);
+        Edges result = new Edges();
+        for (int i : kept) {
+            result.add(edges.sources[i], edges.targets[i], edges.weights[i]);
+        }
+        return new Subgraph(graph, nodes, Arrays.copyOf(result.sources, maxEdges),
+                Arrays.copyOf(result.targets, maxEdges), Arrays.copyOf(result.weights, maxEdges));
+    }
+
+    // 可增长的边列表
+    private static final class Edges {
+        int[] sources = new int[16];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int size;
+
+        void add(int source, int target, int weight) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    // 权重最高的至多 count 条边及其端点
+    static Subgraph heaviest(CompactGraph graph, int count) {
+        HeavyEdges heavy = graph.heavyEdges();
+        count = Math.min(count, heavy.size());
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (long) heavy.sources[i] << 32 | heavy.targets[i];
+        }
+        Arrays.sort(order);
+        int[] nodes = new int[2 * count];
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        int[] weights = new int[count];
+        for (int i = 0; i < count; i++) {
+            sources[i] = (int) (order[i] >>> 32);
+            targets[i] = (int) order[i];
+            nodes[2 * i] = sources[i];
+            nodes[2 * i + 1] = targets[i];
+        }
+        // 按端点排序后查回权重
+        for (int i = 0; i < count; i++) {
+            weights[i] = graph.weight(graph.findEdge(sources[i], targets[i]));
+        }
+        Arrays.sort(nodes);
+        int distinct = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (i == 0 || nodes[i] != nodes[i - 1]) {
+                nodes[distinct++] = nodes[i];
+            }
+        }
+        return new Subgraph(graph, Arrays.copyOf(nodes, distinct), sources, targets, weights);
+    }
+
+    private static int[] grow(int[] array, int size) {
+        return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    // 权重最高的前 LIMIT 条边，按权重从高到低、同权重按 (起点, 终点) 升序排列
+    // 扫一遍所有边，缓冲区满时排序并只留前 LIMIT 条，之后低于门槛的边直接跳过
+    static final class HeavyEdges {
+        static final int LIMIT = 4096;
+
+        final int[] sources;
+        final int[] targets;
+        final int[] weights;
+
+        HeavyEdges(CompactGraph graph) {
+            // 打包成 (权重取反 << 32 | 边的序号)，升序即为目标顺序；序号是按结点、出边顺序数的第几条边
+            long[] buffer = new long[2 * LIMIT];
+            int size = 0;
+            long threshold = Long.MAX_VALUE;
+            int ordinal = 0;
+            for (int u = 0; u < graph.nodeCount(); u++) {
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++, ordinal++) {
+                    long key = (long) (Integer.MAX_VALUE - graph.weight(e)) << 32 | ordinal;
+                    if (key >= threshold) {
+                        continue;
+                    }
+                    buffer[size++] = key;
+                    if (size == buffer.length) {
+                        Arrays.sort(buffer);
+                        size = LIMIT;
+                        threshold = buffer[LIMIT - 1];
+                    }
+                }
+            }
+            Arrays.sort(buffer, 0, size);
+            size = Math.min(size, LIMIT);
+
+            // 按序号再扫一遍，取回这些边的端点
+            long[] byOrdinal = new long[size];
+            for (int i = 0; i < size; i++) {
+                byOrdinal[i] = (buffer[i] & 0xFFFFFFFFL) << 32 | i;
+            }
+            Arrays.sort(byOrdinal);
+            this.sources = new int[size];
+            this.targets = new int[size];
+            this.weights = new int[size];
+            int next = 0;
+            ordinal = 0;
+            for (int u = 0; u < graph.nodeCount() && next < size; u++) {
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u) && next < size; e++, ordinal++) {
+                    if (byOrdinal[next] >>> 32 == ordinal) {
+                        int rank = (int) byOrdinal[next++];
+                        sources[rank] = u;
+                        targets[rank] = graph.target(e);
+                        weights[rank] = graph.weight(e);
+                    }
+                }
+            }
+        }
+
+        int size() {
+            return sources.length;
+        }
+
+        long estimatedBytes() {
+            return 64 + 12L * sources.length;
+        }
+    }
+
+    // 每个结点的出边、入边邻居里权重最高的前 PREFIX 个，按权重从高到低，同权重时先出边后入边、各按编号升序，
+    // 与 scanNeighbours 的顺序一致；邻居不超过 PREFIX 个的结点存下全部邻居
+    static final class HeavyNeighbours {
+        static final int PREFIX = 4 * FANOUT;
+
+        final int[] offsets;
+        final int[] neighbours;
+
+        HeavyNeighbours(CompactGraph graph) {
+            int n = graph.nodeCount();
+            offsets = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] = offsets[u] + Math.min(PREFIX, degree(graph, u));
+            }
+            neighbours = new int[offsets[n]];
+            // 打包成 (权重取反 << 32 | 扫描位置)，升序即为目标顺序；缓冲区满时排序并只留前 PREFIX 个
+            long[] buffer = new long[2 * PREFIX];
+            for (int u = 0; u < n; u++) {
+                int outDegree = graph.edgeEnd(u) - graph.edgeStart(u);
+                int size = 0;
+                long threshold = Long.MAX_VALUE;
+                int position = 0;
+                for (int side = 0; side < 2; side++) {
+                    boolean out = side == 0;
+                    int from = out ? graph.edgeStart(u) : graph.inStart(u);
+                    int to = out ? graph.edgeEnd(u) : graph.inEnd(u);
+                    for (int e = from; e < to; e++, position++) {
+                        int w = out ? graph.weight(e) : graph.inWeight(e);
+                        long key = (long) (Integer.MAX_VALUE - w) << 32 | position;
+                        if (key >= threshold) {
+                            continue;
+                        }
+                        buffer[size++] = key;
+                        if (size == buffer.length) {
+                            Arrays.sort(buffer);
+                            size = PREFIX;
+                            threshold = buffer[PREFIX - 1];
+                        }
+                    }
+                }
+                Arrays.sort(buffer, 0, size);
+                for (int i = 0, at = offsets[u]; at < offsets[u + 1]; i++, at++) {
+                    int p = (int) buffer[i];
+                    neighbours[at] = p < outDegree ? graph.target(graph.edgeStart(u) + p)
+                            : graph.source(graph.inStart(u) + p - outDegree);
+                }
+            }
+        }
+
+        private static int degree(CompactGraph graph, int u) {
+            return graph.edgeEnd(u) - graph.edgeStart(u) + graph.inEnd(u) - graph.inStart(u);
+        }
+
+        // 前缀是否没有包含 u 的全部邻居
+        boolean truncated(CompactGraph graph, int u) {
+            return offsets[u + 1] - offsets[u] < degree(graph, u);
+        }
+
+        long estimatedBytes() {
+            return 64 + 4L * offsets.length + 4L * neighbours.length;
+        }
+    }
+}
@@ -1,28 +1,113 @@
 package graph;
 
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.*;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntUnaryOperator;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class TextGraph {
+    // 生成新文本共用的随机数发生器
+    private static final Random RANDOM = new Random();
+    private static final Pattern NON_LETTER = Pattern.compile("[^a-zA-Z ]");
+
+    // 流式读取的缓冲区大小
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
   public static void main(String[] args) {
     Scanner scanner = new Scanner(System.in);
-        String filePath = args.length > 0 ? args[0] : "";
+        // 用法: TextGraph [文本文件或快照文件] [--no-verify] [--save-snapshot 快照文件] [--server 端口 [--bind 地址]]
+        //                 [--batch 查询文件 结果文件]
+        //                 [--approximate 内存MB [--min-count 最少次数] [--top-k 每个单词的出边数]]
+        String filePath = "";
+        String snapshotPath = null;
+        boolean verifySnapshot = true;
+        int serverPort = -1;
+        String bindAddress = null;
+        String batchInput = null;
+        String batchOutput = null;
+        long approximateBytes = 0;
+        int minCount = ApproximateGraphBuilder.DEFAULT_MIN_COUNT;
+        int topK = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (("--approximate".equals(args[i]) || "--min-count".equals(args[i]) || "--top-k".equals(args[i]))
+                    && i + 1 < args.length) {
+                try {
+                    long value = Long.parseLong(args[i + 1]);
+                    if ("--approximate".equals(args[i])) {
+                        approximateBytes = value << 20;
+                    } else if ("--min-count".equals(args[i])) {
+                        minCount = (int) value;
+                    } else {
+                        topK = (int) value;
+                    }
+                    i++;
+                } catch (NumberFormatException e) {
+                    System.out.println("无效数字: " + args[i + 1]);
+                    return;
+                }
+            } else if ("--no-verify".equals(args[i])) {
+                verifySnapshot = false;
+            } else if ("--save-snapshot".equals(args[i]) && i + 1 < args.length) {
+                snapshotPath = args[++i];
+            } else if ("--batch".equals(args[i]) && i + 2 < args.length) {
+                batchInput = args[++i];
+                batchOutput = args[++i];
+            } else if ("--bind".equals(args[i]) && i + 1 < args.length) {
+                bindAddress = args[++i];
+            } else if ("--server".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    serverPort = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("无效端口: " + args[i]);
+                    return;
+                }
+            } else {
+                filePath = args[i];
+            }
+        }
 
         if (filePath.isEmpty()) {
             System.out.println("请输入文本文件路径:");
             filePath = scanner.nextLine();
         }
 
-        Graph graph = generateGraphFromFile(filePath);
+        CompactGraph graph = approximateBytes > 0
+                ? loadApproximateGraph(filePath, approximateBytes, minCount, topK) : loadGraph(filePath, verifySnapshot);
 
         if (graph == null) {
             return;
         }
+        if (snapshotPath != null) {
+            saveSnapshot(graph, snapshotPath);
+        }
+        LiveGraph live = new LiveGraph(graph);
+        Metrics.register(live::snapshot);
+        if (batchInput != null) {
+            runBatch(graph, batchInput, batchOutput);
+            return;
+        }
+        if (serverPort >= 0) {
+            // 响应头和正文分两次写出，开着 Nagle 算法时每个请求会多等一个延迟 ACK（约 40ms）；
+            // 只在服务模式下、第一次创建 HttpServer 之前设置，命令行上的 -Dsun.net.httpserver.nodelay 优先
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            // 服务模式不进入交互菜单，服务线程会让进程一直运行
+            startServer(live, bindAddress, serverPort);
+            return;
+        }
 
         // 展示有向图
         System.out.println("请输出生成图片名称");
@@ -30,12 +115,22 @@ public class TextGraph {
         showDirectedGraph(graph, fileName);
 
         while (true) {
+            // 每次操作都在最新版本上进行
+            graph = live.snapshot();
             System.out.println("请选择操作:");
             System.out.println("1. 查询桥接词");
             System.out.println("2. 根据bridge word生成新文本");
             System.out.println("3. 计算两个单词之间的最短路径");
             System.out.println("4. 随机游走");
             System.out.println("5. 退出");
+            System.out.println("6. 批量随机游走");
+            System.out.println("7. 追加文本文件");
+            System.out.println("8. 查看运行指标");
+            System.out.println("9. 查看最重要的单词 (PageRank)");
+            System.out.println("10. 展示单词周围的子图");
+            System.out.println("11. 根据bridge word扩写整个文件");
+            System.out.println("12. 计算两个单词之间的前 k 条最短路径");
+            System.out.println("13. 列出两个单词之间所有等长的最短路径");
             System.out.println("请选择操作:");
 
             int choice;
@@ -68,11 +163,17 @@ public class TextGraph {
                     System.out.println("请输入第二个单词:");
                     word2 = scanner.nextLine().trim(); // 同上
 
-                    // 如果任一输入为空
-                    if (word1.isEmpty() || word2.isEmpty()) {
+                    // 只输入第一个单词时，给出它到其它所有单词的最短路径
+                    if (!word1.isEmpty() && word2.isEmpty()) {
+                        System.out.println(calcShortestPathsFrom(graph, word1));
+                    } else if (word1.isEmpty() || word2.isEmpty()) {
                         System.out.println("Lack of words");
                     } else {
-                        System.out.println(calcShortestPath(graph, word1, word2));
+                        PathResult path = findShortestPath(graph, word1, word2);
+                        System.out.println(path.message());
+                        if (path.status == PathResult.Status.FOUND) {
+                            showShortestPath(graph, path.path, "path");
+                        }
                     }
                     break;
                 case 4:
@@ -82,12 +183,205 @@ public class TextGraph {
                 case 5:
                     System.out.println("退出程序");
                     return;
+                case 6:
+                    try {
+                        System.out.println("请输入游走条数:");
+                        long count = Long.parseLong(scanner.nextLine().trim());
+                        System.out.println("请输入每条游走的最大步数:");
+                        int length = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.println("请输入随机种子:");
+                        long seed = Long.parseLong(scanner.nextLine().trim());
+                        System.out.println("请输入输出文件名:");
+                        String output = scanner.nextLine().trim();
+                        if (randomWalks(graph, count, length, seed, output)) {
+                            System.out.println("随机游走结果已写入: " + output);
+                        }
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效输入，请输入数字。");
+                    }
+                    break;
+                case 7:
+                    System.out.println("请输入要追加的文本文件路径:");
+                    appendFile(live, scanner.nextLine().trim());
+                    break;
+                case 8:
+                    System.out.println(Metrics.report());
+                    break;
+                case 9:
+                    System.out.println(topRankedWords(graph, 20));
+                    break;
+                case 10:
+                    try {
+                        System.out.println("请输入单词（空格分隔）:");
+                        List<String> words = new ArrayList<>();
+                        for (String word : scanner.nextLine().trim().toLowerCase().split("\\s+")) {
+                            if (graph.id(word) >= 0) {
+                                words.add(word);
+                            }
+                        }
+                        System.out.println("请输入跳数:");
+                        int hops = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.println("请输入输出文件名:");
+                        String output = scanner.nextLine().trim();
+                        if (words.isEmpty()) {
+                            System.out.println("图中没有这些单词");
+                        } else {
+                            showNeighbourhood(graph, words, hops, output);
+                        }
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效输入，请输入数字。");
+                    }
+                    break;
+                case 11:
+                    try {
+                        System.out.println("请输入要扩写的文本文件路径:");
+                        String input = scanner.nextLine().trim();
+                        System.out.println("请输入随机种子:");
+                        long seed = Long.parseLong(scanner.nextLine().trim());
+                        System.out.println("请输入输出文件名:");
+                        String output = scanner.nextLine().trim();
+                        if (generateNewTextFile(graph, input, output, seed)) {
+                            System.out.println("新文本已写入: " + output);
+                        }
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效输入，请输入数字。");
+                    }
+                    break;
+                case 12:
+                    try {
+                        System.out.println("请输入第一个单词:");
+                        word1 = scanner.nextLine().trim();
+                        System.out.println("请输入第二个单词:");
+                        word2 = scanner.nextLine().trim();
+                        System.out.println("请输入路径条数 k:");
+                        int k = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.println(calcShortestPaths(graph, word1, word2, k));
+                    } catch (NumberFormatException e) {
+                        System.out.println("无效输入，请输入数字。");
+                    }
+                    break;
+                case 13:
+                    System.out.println("请输入第一个单词:");
+                    word1 = scanner.nextLine().trim();
+                    System.out.println("请输入第二个单词:");
+                    word2 = scanner.nextLine().trim();
+                    System.out.println(calcAllShortestPaths(graph, word1, word2));
+                    break;
                 default:
                     System.out.println("无效选择，请重试.");
             }
         }
     }
 
+    // 读入快照或文本并冻结成紧凑图，可变的 Graph 建完即丢弃；各阶段耗时记入 Metrics
+    static CompactGraph loadGraph(String filePath) {
+        return loadGraph(filePath, true);
+    }
+
+    // verifySnapshot 为 false 时读快照跳过 CRC 校验，对文本文件没有影响
+    static CompactGraph loadGraph(String filePath, boolean verifySnapshot) {
+        long start = System.nanoTime();
+        long size;
+        try {
+            size = Files.size(Paths.get(filePath));
+            if (GraphSnapshot.isSnapshot(Paths.get(filePath))) {
+                CompactGraph graph = GraphSnapshot.read(Paths.get(filePath), verifySnapshot);
+                Metrics.SNAPSHOT.record(System.nanoTime() - start, size, 0);
+                return graph;
+            }
+        } catch (IOException e) {
+            System.out.println("文件读取失败: " + e.getMessage());
+            return null;
+        }
+        Graph graph = generateGraphFromFileParallel(filePath);
+        if (graph == null) {
+            return null;
+        }
+        long parsed = System.nanoTime();
+        CompactGraph compact = graph.compact();
+        long compacted = System.nanoTime();
+        // 相邻单词对的个数加一就是单词数
+        Metrics.PARSE.record(parsed - start, size, compact.totalWeight() + 1);
+        Metrics.COMPACT.record(compacted - parsed, 0, 0);
+        return compact;
+    }
+
+    // 在固定内存预算内近似建图，只保留高频的边，打印误差说明
+    static CompactGraph loadApproximateGraph(String filePath, long memoryBytes, int minCount, int maxOutDegree) {
+        long start = System.nanoTime();
+        try {
+            long size = Files.size(Paths.get(filePath));
+            ApproximateGraphBuilder builder = ApproximateGraphBuilder.build(Paths.get(filePath), memoryBytes,
+                    minCount, maxOutDegree);
+            long parsed = System.nanoTime();
+            CompactGraph graph = builder.finish();
+            Metrics.PARSE.record(parsed - start, size, builder.tokens());
+            Metrics.COMPACT.record(System.nanoTime() - parsed, 0, 0);
+            System.out.println(builder.report());
+            return graph;
+        } catch (IOException e) {
+            System.out.println("文件读取失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 把图保存为二进制快照，下次启动可以直接加载
+    static boolean saveSnapshot(CompactGraph graph, String snapshotPath) {
+        try {
+            GraphSnapshot.write(graph, Paths.get(snapshotPath));
+            System.out.println("快照已保存: " + snapshotPath);
+            return true;
+        } catch (IOException e) {
+            System.out.println("写入快照失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 批量查询：结果文件以 .json 或 .jsonl 结尾时每行输出一个 JSON 对象，否则输出 TSV
+    static boolean runBatch(CompactGraph graph, String inputFile, String outputFile) {
+        BatchQueries.Format format = outputFile.endsWith(".json") || outputFile.endsWith(".jsonl")
+                ? BatchQueries.Format.JSON : BatchQueries.Format.TSV;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(inputFile));
+             BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
+            long count = BatchQueries.run(graph, reader, writer, format, Runtime.getRuntime().availableProcessors());
+            System.out.println("已完成 " + count + " 条查询，结果已写入: " + outputFile);
+            return true;
+        } catch (IOException e) {
+            System.out.println("批量查询失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 以服务模式运行：线程数与核数相同，最多排队 1024 个请求，每个请求限时 5 秒
+    // 默认只监听本机回环地址；/append 会修改图且没有鉴权，监听其它地址要用 --bind 明确指定
+    static QueryServer startServer(LiveGraph live, String bindAddress, int port) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        QueryServer server = new QueryServer(live, threads, 1024, 5000);
+        try {
+            InetAddress address = bindAddress == null
+                    ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress);
+            int bound = server.start(address, port);
+            System.out.println("查询服务已启动: http://" + address.getHostAddress() + ":" + bound + "/");
+            return server;
+        } catch (IOException e) {
+            System.out.println("启动服务失败: " + e.getMessage());
+            server.stop();
+            return null;
+        }
+    }
+
+    // 把新文本文件追加到图中，发布新版本；正在进行的查询继续使用旧版本
+    static boolean appendFile(LiveGraph live, String filePath) {
+        try {
+            CompactGraph graph = live.append(Paths.get(filePath));
+            System.out.println("已追加，当前共 " + graph.nodeCount() + " 个单词、" + graph.edgeCount() + " 条边");
+            return true;
+        } catch (IOException e) {
+            System.out.println("文件读取失败: " + e.getMessage());
+            return false;
+        }
+    }
+
     // 从文件中生成图
     public static Graph generateGraphFromFile(String filePath) {
         Graph graph = new Graph();
@@ -108,12 +402,56 @@ public class TextGraph {
         }
     }
 
+    // 流式从文件中生成图：分块读取并逐词加边，峰值内存只和词表、边数有关，与文件大小无关
+    // 生成的图与 generateGraphFromFile 完全一致
+    public static Graph generateGraphFromFileStreaming(String filePath) {
+        Graph graph = new Graph();
+        String[] previous = {null};
+        WordTokenizer tokenizer = new WordTokenizer(word -> {
+            if (previous[0] != null) {
+                graph.addEdge(previous[0], word);
+            }
+            previous[0] = word;
+        });
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                tokenizer.feed(buffer);
+                buffer.clear();
+            }
+            tokenizer.finish();
+            graph.addEdge(previous[0], null);
+            return graph;
+        } catch (IOException e) {
+            System.out.println("文件读取失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 多线程并行从文件中生成图，结果与 generateGraphFromFile 完全一致
+    public static Graph generateGraphFromFileParallel(String filePath) {
+        return generateGraphFromFileParallel(filePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static Graph generateGraphFromFileParallel(String filePath, int parallelism) {
+        try {
+            return ParallelGraphBuilder.build(Paths.get(filePath), parallelism);
+        } catch (IOException e) {
+            System.out.println("文件读取失败: " + e.getMessage());
+            return null;
+        }
+    }
+
     // 图结构类
     static class Graph {
         private final Map<String, Map<String, Integer>> adjList = new HashMap<>();
+        // 冻结后的紧凑图，加边后失效
+        private CompactGraph compact;
 
         // 添加边到图中
         public void addEdge(String begin, String end) {
+            compact = null;
             if (!adjList.containsKey(begin)) {
                 adjList.put(begin, new HashMap<>());
             }
@@ -126,164 +464,258 @@ public class TextGraph {
 
         }
 
+        // 一次性添加 count 条相同的边，合并部分图时使用
+        public void addEdge(String begin, String end, int count) {
+            compact = null;
+            Map<String, Integer> innerMap = adjList.computeIfAbsent(begin, k -> new HashMap<>());
+            if (end != null) {
+                innerMap.merge(end, count, Integer::sum);
+            }
+        }
+
         public Map<String, Map<String, Integer>> getAdjList() {
             return adjList;
         }
+
+        // 冻结成紧凑图，查询都在紧凑图上进行；图不变时重复调用返回同一个实例
+        public CompactGraph compact() {
+            if (compact == null) {
+                compact = CompactGraph.from(this);
+            }
+            return compact;
+        }
     }
 
     // 展示有向图
-    static void showDirectedGraph(Graph graph, String outputFileName) {
+    static CompletableFuture<Path> showDirectedGraph(Graph graph, String outputFileName) {
+        return showDirectedGraph(graph.compact(), outputFileName);
+    }
+
+    // 渲染在后台进行，不阻塞调用方；完成后输出 dot 和 png 文件
+    static CompletableFuture<Path> showDirectedGraph(CompactGraph graph, String outputFileName) {
+        return saveRendering(GraphRenderer.SHARED.render(graph), outputFileName);
+    }
+
+    // 展示 words 周围 hops 跳的子图，大图上也只渲染这一小部分
+    static CompletableFuture<Path> showNeighbourhood(CompactGraph graph, List<String> words, int hops,
+                                                    String outputFileName) {
+        return saveRendering(GraphRenderer.SHARED.renderNeighbourhood(graph, words, hops), outputFileName);
+    }
+
+    // 展示最短路径及其一跳邻居
+    static CompletableFuture<Path> showShortestPath(CompactGraph graph, List<String> path, String outputFileName) {
+        return saveRendering(GraphRenderer.SHARED.renderPath(graph, path), outputFileName);
+    }
+
+    private static CompletableFuture<Path> saveRendering(CompletableFuture<Path> rendering, String outputFileName) {
         // 定义输出 PNG 文件名
         String pngFileName = outputFileName + ".png";
         // 定义 dot 文件名
         String dotFileName = outputFileName + ".dot";
-        // 写入 dot 文件
-        // 缓冲写文件
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(dotFileName))) {
-            writer.write("digraph G {\n");
-            Map<String, Map<String, Integer>> adjList = graph.getAdjList();
-            for (Map.Entry<String, Map<String, Integer>> entry : adjList.entrySet()){
-                String from = entry.getKey();
-                Map<String, Integer> edges = entry.getValue();
-                for (Map.Entry<String, Integer> edge : edges.entrySet()){
-
-                    String to = edge.getKey();
-                    int weight = edge.getValue();
-                    writer.write(String.format("\"%s\" -> \"%s\" [label=\"%d\"];\n", from, to, weight));
-                }
+        return rendering.whenComplete((png, error) -> {
+            if (error != null) {
+                System.out.println("生成图形文件失败: " + error.getMessage());
+                return;
             }
-            writer.write("}\n");
-        } catch (IOException e) {
-            System.out.println("写入 dot 文件失败: " + e.getMessage());
-            return;
-        }
-
-        // 使用 dot 命令生成 PNG 文件
-        try {
-            //创建一个 ProcessBuilder 对象，用于启动一个外部进程来执行指定的命令
-            //ProcessBuilder 用于执行 dot 命令
-            ProcessBuilder pb = new ProcessBuilder("dot", "-Tpng", dotFileName, "-o", pngFileName);
-            //根据配置启动进程
-            Process p = pb.start();
-            //等待进程结束
-            p.waitFor();
-            System.out.println("图结构已生成: " + pngFileName);
-        } catch (IOException | InterruptedException e) {
-            System.out.println("生成图形文件失败: " + e.getMessage());
-        }
+            try {
+                GraphRenderer.copyTo(png, dotFileName, pngFileName);
+                System.out.println("图结构已生成: " + pngFileName);
+            } catch (IOException e) {
+                System.out.println("写入 dot 文件失败: " + e.getMessage());
+            }
+        });
     }
 
   // 查询桥接词
   static String queryBridgeWords(Graph graph, String word1, String word2) {
+    return queryBridgeWords(graph.compact(), word1, word2);
+  }
+
+  static String queryBridgeWords(CompactGraph graph, String word1, String word2) {
+    return queryBridgeWords(graph, word1, word2, true);
+  }
+
+  // render 为 true 时额外生成高亮桥接词的图片
+  static String queryBridgeWords(CompactGraph graph, String word1, String word2, boolean render) {
+    BridgeResult result = findBridgeWords(graph, word1, word2);
+    if (render && result.status == BridgeResult.Status.FOUND) {
+      try {
+        writeDotFileWithHighlight(graph, result.word1, result.word2, new HashSet<>(result.bridges));
+      } catch (IOException e) {
+        System.out.println("生成dot文件失败: " + e.getMessage());
+        return "Failed to write DOT file with highlights!";
+      }
+    }
+    return result.message();
+  }
+
+  // 查询桥接词，只返回结构化结果，不生成任何文件
+  static BridgeResult findBridgeWords(CompactGraph graph, String word1, String word2) {
+    long start = System.nanoTime();
+    BridgeResult result = bridgeWords(graph, word1, word2);
+    Metrics.BRIDGE.record(System.nanoTime() - start);
+    return result;
+  }
+
+  private static BridgeResult bridgeWords(CompactGraph graph, String word1, String word2) {
     String regex = "^[a-zA-Z]+$";
 
     if (word1.isEmpty() || word2.isEmpty()) {
-      return "Lack of words";
+      return new BridgeResult(word1, word2, BridgeResult.Status.LACK_OF_WORDS);
     }
     // 检查输入是否为合法单词
     if (!Pattern.matches(regex, word1) || !Pattern.matches(regex, word2)) {
-      return "Invalid input: Input strings must be alphabetic words.";
+      return new BridgeResult(word1, word2, BridgeResult.Status.INVALID_INPUT);
     }
     word1 = word1.toLowerCase();
     word2 = word2.toLowerCase();
-    boolean word1In = graph.getAdjList().containsKey(word1);
-    boolean word2In = graph.getAdjList().containsKey(word2);
+    int id1 = graph.id(word1);
+    int id2 = graph.id(word2);
+    boolean word1In = id1 >= 0;
+    boolean word2In = id2 >= 0;
 
     if (!word1In && word2In) {
-      return "No \"" + word1 + "\" in the graph!";
+      return new BridgeResult(word1, word2, BridgeResult.Status.MISSING_WORD1);
     } else if (word1In && !word2In) {
-      return "No \"" + word2 + "\" in the graph!";
+      return new BridgeResult(word1, word2, BridgeResult.Status.MISSING_WORD2);
     } else if (!word1In && !word2In) {
-      return "No \"" + word1 + "\" and \"" + word2 + "\" in the graph!";
+      return new BridgeResult(word1, word2, BridgeResult.Status.MISSING_BOTH);
     }
 
-    Set<String> bridges = new HashSet<>();
-    if (graph.getAdjList().get(word1) != null) {
-      for (String intermediate : graph.getAdjList().get(word1).keySet()) {
-        if (graph.getAdjList().get(intermediate) != null
-                && graph.getAdjList().get(intermediate).containsKey(word2)) {
-          bridges.add(intermediate);
-        }
-      }
+    // word1 的后继与 word2 的前驱求交集
+    int[] ids = graph.bridges(id1, id2);
+    if (ids.length == 0) {
+      return new BridgeResult(word1, word2, BridgeResult.Status.NO_BRIDGE);
     }
+    return new BridgeResult(word1, word2, BridgeResult.Status.FOUND, originalOrder(graph, id1, ids));
+  }
 
-    if (bridges.isEmpty()) {
-      return "No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!";
-    } else {
-      try {
-        writeDotFileWithHighlight(graph, word1, word2, bridges);
-      } catch (IOException e) {
-        System.out.println("生成dot文件失败: " + e.getMessage());
-        return "Failed to write DOT file with highlights!";
-      }
-      return "The bridge words from \"" + word1 + "\" to \"" + word2
-              + "\" are: " + String.join(", ", bridges);
+  // 原实现遍历 word1 的后继表（HashMap，按文本逐个 put）把桥接词放进新的 HashSet，再按 HashSet 的顺序输出。
+  // 这里按两张表的桶号还原这个顺序：先比 HashSet 的桶，再比后继表的桶。
+  // 同一个后继表桶里原来按二元组在文本中首次出现的先后排列，这个信息没有保存，只能按编号排，
+  // 所以桶冲突（以及树化的桶）时输出仍可能与原来不同
+  private static List<String> originalOrder(CompactGraph graph, int id1, int[] ids) {
+    int successorMask = tableSize(graph.edgeEnd(id1) - graph.edgeStart(id1)) - 1;
+    int setMask = tableSize(ids.length) - 1;
+    String[] words = new String[ids.length];
+    int[] hashes = new int[ids.length];
+    Integer[] order = new Integer[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      words[i] = graph.word(ids[i]);
+      int h = words[i].hashCode();
+      hashes[i] = h ^ (h >>> 16);
+      order[i] = i;
     }
+    // 稳定排序，桶号相同的保持编号顺序
+    Arrays.sort(order, (a, b) -> {
+      int c = Integer.compare(hashes[a] & setMask, hashes[b] & setMask);
+      return c != 0 ? c : Integer.compare(hashes[a] & successorMask, hashes[b] & successorMask);
+    });
+    List<String> bridges = new ArrayList<>(ids.length);
+    for (int i : order) {
+      bridges.add(words[i]);
+    }
+    return bridges;
+  }
+
+  // 逐个插入 n 个元素后 HashMap 的表长：从 16 开始，元素数超过表长的 3/4 就翻倍
+  private static int tableSize(int n) {
+    int size = 16;
+    while (n > size / 4 * 3) {
+      size <<= 1;
+    }
+    return size;
+  }
+
+  // 批量查询桥接词，在公共 fork-join 池上并行执行，结果与输入顺序一致
+  static List<BridgeResult> queryBridgeWords(CompactGraph graph, List<WordPair> pairs) {
+    return pairs.parallelStream()
+            .map(pair -> findBridgeWords(graph, pair.word1, pair.word2))
+            .collect(Collectors.toList());
   }
 
     static void writeDotFileWithHighlight(Graph graph, String word1, String word2, Set<String> bridges) throws IOException {
+        writeDotFileWithHighlight(graph.compact(), word1, word2, bridges);
+    }
+
+    static void writeDotFileWithHighlight(CompactGraph graph, String word1, String word2, Set<String> bridges) throws IOException {
        if(Objects.equals(word1, "with") && Objects.equals(word2, "of")){
            throw new IOException("IO Error");
        }
 
-      String dotFilePath = "graph.dot";
-        String dotFileContent = generateDotFileWithHighlight(graph, word1, word2, bridges);
-        Files.write(Paths.get(dotFilePath), dotFileContent.getBytes());
-        // 使用 dot 命令生成 PNG 文件
-        try {
-            //创建一个 ProcessBuilder 对象，用于启动一个外部进程来执行指定的命令
-            //ProcessBuilder 用于执行 dot 命令
-            ProcessBuilder pb = new ProcessBuilder("dot", "-Tpng", "graph.dot", "-o", "highlight.png");
-            //根据配置启动进程
-            Process p = pb.start();
-            //等待进程结束
-            p.waitFor();
-        } catch (IOException | InterruptedException e) {
-            System.out.println("生成图形文件失败: " + e.getMessage());
-        }
+        // 高亮图在后台渲染，查询不等待图片生成
+        GraphRenderer.SHARED.renderHighlight(graph, word1, word2, bridges).whenComplete((png, error) -> {
+            if (error != null) {
+                System.out.println("生成图形文件失败: " + error.getMessage());
+                return;
+            }
+            try {
+                GraphRenderer.copyTo(png, "graph.dot", "highlight.png");
+            } catch (IOException e) {
+                System.out.println("生成图形文件失败: " + e.getMessage());
+            }
+        });
     }
 
     static String generateDotFileWithHighlight(Graph graph, String word1, String word2, Set<String> bridges) {
+        return generateDotFileWithHighlight(graph.compact(), word1, word2, bridges);
+    }
+
+    static String generateDotFileWithHighlight(CompactGraph graph, String word1, String word2, Set<String> bridges) {
         StringBuilder dotFileContent = new StringBuilder();
-        dotFileContent.append("digraph G {\n");
-
-        for (String node : graph.getAdjList().keySet()) {
-            if (node.equals(word1)) {
-                dotFileContent.append("    ").append(node).append(" [label=<<font color=\"blue\"><b>").append(node).append("</b></font>>];\n");
-            } else if (node.equals(word2)) {
-                dotFileContent.append("    ").append(node).append(" [label=<<font color=\"blue\"><b>").append(node).append("</b></font>>];\n");
-            } else if (bridges.contains(node)) {
-                dotFileContent.append("    ").append(node).append(" [label=<<font color=\"green\"><b>").append(node).append("</b></font>>];\n");
-            } else {
-                dotFileContent.append("    ").append(node).append(";\n");
-            }
+        try {
+            GraphRenderer.writeHighlightDot(graph, word1, word2, bridges, dotFileContent);
+        } catch (IOException e) {
+            // StringBuilder 不会抛出 IOException
+            throw new UncheckedIOException(e);
         }
+        return dotFileContent.toString();
+    }
 
-        for (Map.Entry<String, Map<String, Integer>> entry : graph.getAdjList().entrySet()) {
-            String from = entry.getKey();
-            Map<String, Integer> edges = entry.getValue();
-            for (Map.Entry<String, Integer> edge : edges.entrySet()) {
-                String to = edge.getKey();
-                dotFileContent.append("    ").append(from).append(" -> ").append(to).append(" [label=\"").append(edge.getValue()).append("\"];\n");
-            }
-        }
+    // 根据bridge word生成新文本
+    static String generateNewText(Graph graph, String inputText) {
+        return generateNewText(graph.compact(), inputText);
+    }
 
-        dotFileContent.append("}");
-        return dotFileContent.toString();
+    static String generateNewText(CompactGraph graph, String inputText) {
+        return generateNewText(graph, inputText, RANDOM);
     }
 
+    // 逐对查询桥接词时只取结构化结果，不写 dot 文件、不调用 Graphviz
+    static String generateNewText(CompactGraph graph, String inputText, Random random) {
+        long start = System.nanoTime();
+        String newText = insertBridgeWords(graph, inputText, random);
+        Metrics.NEW_TEXT.record(System.nanoTime() - start);
+        return newText;
+    }
 
+    // 扩写整个文件：分块并行插入桥接词，按原顺序写出，保留换行；同一个 seed 得到同样的结果
+    static boolean generateNewTextFile(CompactGraph graph, String inputFile, String outputFile, long seed) {
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(inputFile));
+             BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
+            NewTextStream.run(graph, reader, writer, seed, Runtime.getRuntime().availableProcessors());
+        } catch (IOException e) {
+            System.out.println("扩写文件失败: " + e.getMessage());
+            return false;
+        }
+        Metrics.NEW_TEXT.record(System.nanoTime() - start);
+        return true;
+    }
 
-    // 根据bridge word生成新文本
-    static String generateNewText(Graph graph, String inputText) {
-        String[] words = inputText.replaceAll("[^a-zA-Z ]", "").toLowerCase().split("\\s+"); //字符串按照一个或多个空白字符进行分割。
+    private static String insertBridgeWords(CompactGraph graph, String inputText, Random random) {
+        String[] words = NON_LETTER.matcher(inputText).replaceAll("").toLowerCase().split("\\s+"); //字符串按照一个或多个空白字符进行分割。
         StringBuilder newText = new StringBuilder(words[0]);
 
         for (int i = 0; i < words.length - 1; i++) {
-            String bridgeWords = queryBridgeWords(graph, words[i], words[i + 1]);
-            if (bridgeWords.startsWith("The bridge words")) {
-                String[] parts = bridgeWords.split(": ")[1].split(", ");
-                newText.append(" ").append(parts[new Random().nextInt(parts.length)]);  //new Random().nextInt(parts.length); 生成一个随机索引
+            if ((i & Cancellation.CHECK_MASK) == Cancellation.CHECK_MASK) {
+                Cancellation.checkpoint();
+            }
+            // 内部逐对查询不计入 bridge 指标，整段文本只在 generateNewText 记一次
+            BridgeResult bridgeWords = bridgeWords(graph, words[i], words[i + 1]);
+            if (bridgeWords.status == BridgeResult.Status.FOUND) {
+                List<String> parts = bridgeWords.bridges;
+                newText.append(" ").append(parts.get(random.nextInt(parts.size())));  //random.nextInt(parts.size()); 生成一个随机索引
             }
             newText.append(" ").append(words[i + 1]);
         }
@@ -293,90 +725,263 @@ public class TextGraph {
 
     // 计算两个单词之间的最短路径
     static String calcShortestPath(Graph graph, String word1, String word2) {
-        word1 = word1.toLowerCase();
-        word2 = word2.toLowerCase();
+        return calcShortestPath(graph.compact(), word1, word2);
+    }
+
+    static String calcShortestPath(CompactGraph graph, String word1, String word2) {
+        return findShortestPath(graph, word1, word2).message();
+    }
+
+    // 指定搜索方式；双向搜索的路径长度与单向相同，长度相同的路径不止一条时选出的路径可能不同
+    static String calcShortestPath(CompactGraph graph, String word1, String word2, ShortestPathEngine.Mode mode) {
+        return findShortestPath(graph, word1, word2, mode).message();
+    }
+
+    // 计算最短路径，只返回结构化结果
+    static PathResult findShortestPath(CompactGraph graph, String word1, String word2) {
+        return findShortestPath(graph, word1, word2, ShortestPathEngine.Mode.DIJKSTRA);
+    }
+
+    static PathResult findShortestPath(CompactGraph graph, String word1, String word2, ShortestPathEngine.Mode mode) {
+        long start = System.nanoTime();
+        PathResult result = searchShortestPath(graph, word1, word2, mode);
+        Metrics.SHORTEST_PATH.record(System.nanoTime() - start);
+        return result;
+    }
+
+    // 检查两个单词（已转成小写）能否查询路径，不能时返回对应的结果，能时返回 null
+    private static PathResult checkPathQuery(CompactGraph graph, String word1, String word2) {
         String regex = "^[a-zA-Z]+$";
 
         if (word1 == null || word1.isEmpty() || word2 == null || word2.isEmpty()) {
-            return "Lack of words";
+            return new PathResult(word1, word2, PathResult.Status.LACK_OF_WORDS);
         }
         // 检查输入是否为合法单词
         if (!Pattern.matches(regex, word1) || !Pattern.matches(regex, word2)) {
-            return "Invalid input: Input strings must be alphabetic words.";
+            return new PathResult(word1, word2, PathResult.Status.INVALID_INPUT);
         }
 
-        if (!graph.getAdjList().containsKey(word1) && graph.getAdjList().containsKey(word2)) {
-            return "No \"" + word1 + "\" in the graph!";
-        } else if (graph.getAdjList().containsKey(word1) && !graph.getAdjList().containsKey(word2)) {
-            return "No \"" + word2 + "\" in the graph!";
-        } else if (!graph.getAdjList().containsKey(word1) && !graph.getAdjList().containsKey(word2)) {
-            return "No \"" + word1 +"\" and \"" + word2 + "\" in the graph!";
-        }
-
-        // Dijkstra 算法 具体实现
-        // 在git第二次提交的时候添加的注释
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> previous = new HashMap<>();
-        Set<String> nodes = new HashSet<>(graph.getAdjList().keySet());
-        // 初始化
-        for (String node : nodes) {
-            distances.put(node, Integer.MAX_VALUE);
-        }
-        distances.put(word1, 0);   //计算和word1距离
-
-        while (!nodes.isEmpty()) {
-            // Find the node with the smallest distance
-            String closest = null;
-            int minDistance = Integer.MAX_VALUE;
-            for (String node : nodes) {
-                if (distances.get(node) < minDistance) {
-                    minDistance = distances.get(node);
-                    closest = node;
-                }
-            }
+        int source = graph.id(word1);
+        int target = graph.id(word2);
+        if (source < 0 && target >= 0) {
+            return new PathResult(word1, word2, PathResult.Status.MISSING_WORD1);
+        } else if (source >= 0 && target < 0) {
+            return new PathResult(word1, word2, PathResult.Status.MISSING_WORD2);
+        } else if (source < 0 && target < 0) {
+            return new PathResult(word1, word2, PathResult.Status.MISSING_BOTH);
+        }
+        return null;
+    }
 
-            if (closest == null || distances.get(closest) == Integer.MAX_VALUE) {
-                break;
+    private static PathResult searchShortestPath(CompactGraph graph, String word1, String word2,
+                                                 ShortestPathEngine.Mode mode) {
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        PathResult invalid = checkPathQuery(graph, word1, word2);
+        if (invalid != null) {
+            return invalid;
+        }
+        int source = graph.id(word1);
+        int target = graph.id(word2);
+
+        // 可达性索引能直接否定时不必搜索；索引在后台构建，还没建好时照常搜索
+        ReachabilityIndex index = graph.reachabilityIfBuilt();
+        if (index != null && !index.reachable(source, target)) {
+            return new PathResult(word1, word2, PathResult.Status.NO_PATH);
+        }
+
+        // 点对点查询不经过最短路树缓存：按 mode 搜索，不加全局锁；缓存只给 calcShortestPathsFrom 用
+        // 双向 Dijkstra，从两端同时搜索，出堆的结点通常少一个数量级
+        if (mode == ShortestPathEngine.Mode.BIDIRECTIONAL) {
+            ShortestPathEngine.BidirectionalSearch search = ShortestPathEngine.bidirectionalSearch();
+            search.run(graph, source, target);
+            int[] nodes = search.path();
+            if (nodes == null) {
+                return new PathResult(word1, word2, PathResult.Status.NO_PATH);
+            }
+            List<String> path = new ArrayList<>(nodes.length);
+            for (int node : nodes) {
+                path.add(graph.word(node));
             }
+            return new PathResult(word1, word2, PathResult.Status.FOUND, path, search.length());
+        }
 
-            nodes.remove(closest);
+        // Dijkstra 算法 具体实现，堆和临时数组由引擎按线程复用
+        ShortestPathEngine.Search search = ShortestPathEngine.search(graph.nodeCount());
+        search.run(graph, source, target);
+        return shortestPath(graph, word1, word2, target, search::previous, search.distance(target));
+    }
 
-            if (closest.equals(word2)) {
-                break;
+    // 前 k 条无环最短路径，每条一行；k 为 1 时与 calcShortestPath 完全相同，k 小于 1 时提示输入无效
+    static String calcShortestPaths(CompactGraph graph, String word1, String word2, int k) {
+        if (k == 1) {
+            return calcShortestPath(graph, word1, word2);
+        }
+        return formatPaths(findShortestPaths(graph, word1, word2, k));
+    }
+
+    // 所有长度等于最短路长度的路径，每条一行，至多 KShortestPaths.DEFAULT_LIMIT 条
+    static String calcAllShortestPaths(CompactGraph graph, String word1, String word2) {
+        return formatPaths(findAllShortestPaths(graph, word1, word2, KShortestPaths.DEFAULT_LIMIT));
+    }
+
+    private static String formatPaths(List<PathResult> paths) {
+        if (paths.get(0).status != PathResult.Status.FOUND) {
+            return paths.get(0).message();
+        }
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < paths.size(); i++) {
+            if (i > 0) {
+                result.append('\n');
             }
+            PathResult path = paths.get(i);
+            result.append(i + 1).append(". ").append(String.join(" -> ", path.path))
+                    .append(" with length ").append(path.length);
+        }
+        return result.toString();
+    }
+
+    // 前 k 条无环最短路径，按长度从短到长，第一条与 findShortestPath 的结果相同
+    // 查不了、k 小于 1 或没有路径时返回只含一个结果的列表，说明原因
+    static List<PathResult> findShortestPaths(CompactGraph graph, String word1, String word2, int k) {
+        if (k < 1) {
+            return Collections.singletonList(new PathResult(word1, word2, PathResult.Status.INVALID_K));
+        }
+        long start = System.nanoTime();
+        List<PathResult> result = shortestPaths(graph, word1, word2, k);
+        Metrics.K_PATHS.record(System.nanoTime() - start);
+        return result;
+    }
+
+    // 第一条路径走不计指标的内部搜索，整次查询只记在 kPaths 里
+    private static List<PathResult> shortestPaths(CompactGraph graph, String word1, String word2, int k) {
+        PathResult first = searchShortestPath(graph, word1, word2, ShortestPathEngine.Mode.DIJKSTRA);
+        if (first.status != PathResult.Status.FOUND || k <= 1) {
+            return Collections.singletonList(first);
+        }
+        int[] nodes = new int[first.path.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graph.id(first.path.get(i));
+        }
+        KShortestPaths search = KShortestPaths.prepare(graph, nodes[0], nodes[nodes.length - 1]);
+        return pathResults(graph, first.word1, first.word2, search.shortest(k, nodes));
+    }
+
+    // 所有长度等于最短路长度的路径，至多 limit 条，按单词编号的字典序
+    static List<PathResult> findAllShortestPaths(CompactGraph graph, String word1, String word2, int limit) {
+        long start = System.nanoTime();
+        List<PathResult> result = allShortestPaths(graph, word1, word2, limit);
+        Metrics.K_PATHS.record(System.nanoTime() - start);
+        return result;
+    }
 
-            for (Map.Entry<String, Integer> neighbor : graph.getAdjList().get(closest).entrySet()) {
-                int alt = distances.get(closest) + neighbor.getValue();
-                if (alt < distances.get(neighbor.getKey())) {
-                    distances.put(neighbor.getKey(), alt);
-                    previous.put(neighbor.getKey(), closest);
+    private static List<PathResult> allShortestPaths(CompactGraph graph, String word1, String word2, int limit) {
+        word1 = word1.toLowerCase();
+        word2 = word2.toLowerCase();
+        PathResult invalid = checkPathQuery(graph, word1, word2);
+        if (invalid != null) {
+            return Collections.singletonList(invalid);
+        }
+        int source = graph.id(word1);
+        int target = graph.id(word2);
+        ReachabilityIndex index = graph.reachabilityIfBuilt();
+        if (index != null && !index.reachable(source, target)) {
+            return Collections.singletonList(new PathResult(word1, word2, PathResult.Status.NO_PATH));
+        }
+        KShortestPaths search = KShortestPaths.prepare(graph, source, target);
+        List<int[]> paths = search.allShortest(limit);
+        if (paths.isEmpty()) {
+            return Collections.singletonList(new PathResult(word1, word2, PathResult.Status.NO_PATH));
+        }
+        return pathResults(graph, word1, word2, paths);
+    }
+
+    private static List<PathResult> pathResults(CompactGraph graph, String word1, String word2, List<int[]> paths) {
+        List<PathResult> results = new ArrayList<>(paths.size());
+        for (int[] nodes : paths) {
+            List<String> path = new ArrayList<>(nodes.length);
+            int length = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                path.add(graph.word(nodes[i]));
+                if (i > 0) {
+                    length += graph.weight(graph.findEdge(nodes[i - 1], nodes[i]));
                 }
             }
+            results.add(new PathResult(word1, word2, PathResult.Status.FOUND, path, length));
+        }
+        return results;
+    }
+
+    // 计算从一个单词到其它所有单词的最短路径，每个目标一行
+    static String calcShortestPathsFrom(CompactGraph graph, String word1) {
+        word1 = word1.toLowerCase();
+        String regex = "^[a-zA-Z]+$";
+
+        if (word1.isEmpty()) {
+            return "Lack of words";
+        }
+        if (!Pattern.matches(regex, word1)) {
+            return "Invalid input: Input strings must be alphabetic words.";
+        }
+        int source = graph.id(word1);
+        if (source < 0) {
+            return "No \"" + word1 + "\" in the graph!";
+        }
+
+        ShortestPathTree tree = shortestPathTree(graph, source);
+        StringBuilder result = new StringBuilder();
+        for (int target = 0; target < graph.nodeCount(); target++) {
+            if ((target & Cancellation.CHECK_MASK) == Cancellation.CHECK_MASK) {
+                Cancellation.checkpoint();
+            }
+            if (target == source) {
+                continue;
+            }
+            if (result.length() > 0) {
+                result.append('\n');
+            }
+            result.append(shortestPath(graph, word1, graph.word(target), target, tree::previous, tree.distance(target))
+                    .message());
         }
+        return result.toString();
+    }
 
-        if (!previous.containsKey(word2)) {
-            return "No path from " + word1 + " to " + word2 + "!";
+    // 从 source 出发的完整最短路树，结果放入缓存供之后同一起点的查询使用
+    static ShortestPathTree shortestPathTree(CompactGraph graph, int source) {
+        return ShortestPathCache.SHARED.tree(graph, source);
+    }
+
+    private static PathResult shortestPath(CompactGraph graph, String word1, String word2, int target,
+                                           IntUnaryOperator previous, int length) {
+        if (previous.applyAsInt(target) < 0) {
+            return new PathResult(word1, word2, PathResult.Status.NO_PATH);
         }
 
         List<String> path = new ArrayList<>();
-        for (String at = word2; at != null; at = previous.get(at)) {
-            path.add(at);
+        for (int at = target; at >= 0; at = previous.applyAsInt(at)) {
+            path.add(graph.word(at));
         }
         Collections.reverse(path);
 
-        return "Shortest path: " + String.join(" -> ", path) + " with length " + distances.get(word2);
+        return new PathResult(word1, word2, PathResult.Status.FOUND, path, length);
     }
 
     // 随机游走
     static String randomWalk(Graph graph) {
-        List<String> nodes = new ArrayList<>(graph.getAdjList().keySet());
-        if (nodes.isEmpty()) {
+        return randomWalk(graph.compact());
+    }
+
+    static String randomWalk(CompactGraph graph) {
+        if (graph.nodeCount() == 0) {
             return "Graph is empty";
         }
-        String current = nodes.get(new Random().nextInt(nodes.size()));
-        System.out.println(current);
-        StringBuilder path = new StringBuilder(current);
-        Set<String> visitedEdges = new HashSet<>();
+        // 交互式游走是游走引擎的单条、逐步模式：按边权选边，走过的边不再走
+        SplittableRandom random = new SplittableRandom();
+        WalkEngine.Walker walker = graph.walkEngine().walker();
+        walker.start();
+        int current = random.nextInt(graph.nodeCount());
+        System.out.println(graph.word(current));
+        StringBuilder path = new StringBuilder(graph.word(current));
         boolean[] stopFlag = {false};
 
         // Create a separate thread to listen for user input
@@ -390,37 +995,28 @@ public class TextGraph {
         });
         inputThread.start();
 
+        // 只累计走步本身的耗时，每步之间的等待不计入 walk 指标
+        long stepNanos = 0;
         while (!stopFlag[0]) {
-            Map<String, Integer> edges = graph.getAdjList().get(current);
-            if (edges == null || edges.isEmpty()) {
+            long stepStart = System.nanoTime();
+            int edge = walker.step(current, random);
+            if (edge < 0) {
+                stepNanos += System.nanoTime() - stepStart;
                 break;
             }
 
-            String finalCurrent = current;
-            List<String> possibleNextNodes = new ArrayList<>();
-            for (String next : edges.keySet()) {
-                String edge = current + "->" + next;
-                if (!visitedEdges.contains(edge)) {
-                    possibleNextNodes.add(next);
-                }
-            }
-
-            if (possibleNextNodes.isEmpty()) {
-                break;
-            }
+            current = graph.target(edge);
+            path.append(" -> ").append(graph.word(current));
+            stepNanos += System.nanoTime() - stepStart;
 
-            String next = possibleNextNodes.get(new Random().nextInt(possibleNextNodes.size()));
-            visitedEdges.add(current + "->" + next);
-            path.append(" -> ").append(next);
-            current = next;
-
-            System.out.println(current);
+            System.out.println(graph.word(current));
             try {
                 Thread.sleep(1000); // Delay of 1 second between steps
             } catch (InterruptedException e) {
                 System.out.println("生成图形文件失败: " + e.getMessage());
             }
         }
+        Metrics.WALK.record(stepNanos);
 
         String result = path.toString();
         try (BufferedWriter writer = Files.newBufferedWriter(Paths.get("random_walk.txt"))) {
@@ -432,4 +1028,34 @@ public class TextGraph {
         return result;
     }
 
+    // PageRank 最高的 k 个单词，每行一个：名次、单词、分数
+    static String topRankedWords(CompactGraph graph, int k) {
+        if (graph.nodeCount() == 0) {
+            return "Graph is empty";
+        }
+        PageRank ranks = graph.pageRank();
+        int[] top = ranks.top(k);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < top.length; i++) {
+            if (i > 0) {
+                result.append('\n');
+            }
+            result.append(i + 1).append(". ").append(graph.word(top[i]))
+                    .append(String.format(Locale.ROOT, " %.6f", ranks.rank(top[i])));
+        }
+        return result.toString();
+    }
+
+    // 批量随机游走：生成 count 条至多 length 步的游走写入文件，每行一条
+    // 在所有核上并行，同一个 seed 得到同样的结果
+    static boolean randomWalks(CompactGraph graph, long count, int length, long seed, String outputFile) {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputFile))) {
+            graph.walkEngine().walks(count, length, seed, Runtime.getRuntime().availableProcessors(), writer);
+            return true;
+        } catch (IOException e) {
+            System.out.println("写入随机游走结果文件失败: " + e.getMessage());
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,37 @@
+package graph;
+
+import java.util.Map;
+
+// 通过 JMX 暴露的运行指标，注册名为 graph:type=TextGraph
+public interface TextGraphMXBean {
+    int getNodeCount();
+
+    int getEdgeCount();
+
+    long getEstimatedHeapBytes();
+
+    // 出度最高的单词，形如 "word(出度)"
+    String[] getTopHubs();
+
+    long getIngestedBytes();
+
+    long getIngestedTokens();
+
+    double getIngestBytesPerSecond();
+
+    double getIngestTokensPerSecond();
+
+    // 以下三项按操作名（bridge、shortestPath、newText、walk、kPaths）区分
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Double> getMeanLatencyMicros();
+
+    Map<String, Double> getP99LatencyMicros();
+
+    double getShortestPathCacheHitRate();
+
+    double getRenderCacheHitRate();
+
+    // 与文本命令相同的完整报告
+    String dump();
+}
@@ -0,0 +1,283 @@
+package graph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 随机游走引擎：每个结点的出边建一张别名表，按边权 O(1) 采样下一步
+// 走过的边记在每个 Walker 自己的小哈希集合里，同一次游走不会重复经过同一条边
+final class WalkEngine {
+    // 每批游走的条数；各批的随机数发生器按批次顺序从同一个根发生器 split 出来，结果和线程数无关
+    static final int BATCH_SIZE = 1024;
+    // 采到已走过的边时重新采样的次数，超过后在未走过的边里按权重线性挑选
+    private static final int MAX_REJECTIONS = 8;
+
+    private final CompactGraph graph;
+    // 别名表，和边编号一一对应：以 prob[e] 的概率选 e，否则选 alias[e]；不建表时为 null
+    private final float[] prob;
+    private final int[] alias;
+
+    private WalkEngine(CompactGraph graph, float[] prob, int[] alias) {
+        this.graph = graph;
+        this.prob = prob;
+        this.alias = alias;
+    }
+
+    // 不建别名表的引擎：每步在出边里按权重线性挑选，O(出度)；别名表还没建好时给单次查询用
+    static WalkEngine withoutTables(CompactGraph graph) {
+        return new WalkEngine(graph, null, null);
+    }
+
+    WalkEngine(CompactGraph graph) {
+        this.graph = graph;
+        int edges = graph.edgeIdBound();
+        this.prob = new float[edges];
+        this.alias = new int[edges];
+        int[] small = new int[16];
+        int[] large = new int[16];
+        double[] scaled = new double[16];
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            int start = graph.edgeStart(u);
+            int degree = graph.edgeEnd(u) - start;
+            if (degree == 0) {
+                continue;
+            }
+            if (scaled.length < degree) {
+                small = new int[degree];
+                large = new int[degree];
+                scaled = new double[degree];
+            }
+            // Vose 别名法
+            long total = 0;
+            for (int i = 0; i < degree; i++) {
+                total += graph.weight(start + i);
+            }
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < degree; i++) {
+                scaled[i] = (double) graph.weight(start + i) * degree / total;
+                if (scaled[i] < 1.0) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int s = small[--smallCount];
+                int l = large[--largeCount];
+                prob[start + s] = (float) scaled[s];
+                alias[start + s] = start + l;
+                scaled[l] = scaled[l] + scaled[s] - 1.0;
+                if (scaled[l] < 1.0) {
+                    small[smallCount++] = l;
+                } else {
+                    large[largeCount++] = l;
+                }
+            }
+            while (largeCount > 0) {
+                int l = large[--largeCount];
+                prob[start + l] = 1.0f;
+                alias[start + l] = start + l;
+            }
+            while (smallCount > 0) {
+                // 只会因浮点误差出现
+                int s = small[--smallCount];
+                prob[start + s] = 1.0f;
+                alias[start + s] = start + s;
+            }
+        }
+    }
+
+    CompactGraph graph() {
+        return graph;
+    }
+
+    long estimatedBytes() {
+        return prob == null ? 32 : 32 + 8L * prob.length;
+    }
+
+    // 每个线程各用一个 Walker；Walker 只占与游走长度相当的内存，单次请求直接新建即可
+    Walker walker() {
+        return new Walker();
+    }
+
+    // 单条游走的状态：记录本次走过的边
+    final class Walker {
+        // 走过的边编号 + 1，开放寻址，0 表示空槽；容量随游走长度增长，与图的规模无关
+        private int[] visited = new int[16];
+        private int size;
+
+        // 开始新的一次游走
+        void start() {
+            if (size > 0) {
+                Arrays.fill(visited, 0);
+                size = 0;
+            }
+        }
+
+        private boolean isVisited(int e) {
+            int mask = visited.length - 1;
+            for (int slot = slot(e, mask); visited[slot] != 0; slot = (slot + 1) & mask) {
+                if (visited[slot] == e + 1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 标记 e 为走过，原来已经走过时返回 false
+        private boolean visit(int e) {
+            int mask = visited.length - 1;
+            int slot = slot(e, mask);
+            for (; visited[slot] != 0; slot = (slot + 1) & mask) {
+                if (visited[slot] == e + 1) {
+                    return false;
+                }
+            }
+            visited[slot] = e + 1;
+            if (++size * 2 > visited.length) {
+                int[] old = visited;
+                visited = new int[old.length * 2];
+                mask = visited.length - 1;
+                for (int entry : old) {
+                    if (entry != 0) {
+                        int s = slot(entry - 1, mask);
+                        while (visited[s] != 0) {
+                            s = (s + 1) & mask;
+                        }
+                        visited[s] = entry;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // 从 u 出发按边权选一条没走过的边并标记，返回边编号；没有可走的边时返回 -1
+        // 没有别名表时直接在出边里按权重线性挑选
+        int step(int u, SplittableRandom random) {
+            int start = graph.edgeStart(u);
+            int degree = graph.edgeEnd(u) - start;
+            if (degree == 0) {
+                return -1;
+            }
+            for (int attempt = 0; prob != null && attempt < MAX_REJECTIONS; attempt++) {
+                int e = start + random.nextInt(degree);
+                if (random.nextDouble() >= prob[e]) {
+                    e = alias[e];
+                }
+                if (visit(e)) {
+                    return e;
+                }
+            }
+            long remaining = 0;
+            for (int e = start; e < start + degree; e++) {
+                if (!isVisited(e)) {
+                    remaining += graph.weight(e);
+                }
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            long pick = random.nextLong(remaining);
+            for (int e = start; e < start + degree; e++) {
+                if (!isVisited(e)) {
+                    pick -= graph.weight(e);
+                    if (pick < 0) {
+                        visit(e);
+                        return e;
+                    }
+                }
+            }
+            throw new IllegalStateException("unreachable");
+        }
+
+        // 从随机起点走至多 length 步，单词之间以空格分隔写入 out
+        void walk(int length, SplittableRandom random, StringBuilder out) {
+            walk(length, random, out, false);
+        }
+
+        // rankedStart 为 true 时按 PageRank 分数抽起点，重要的单词更常作为开头
+        void walk(int length, SplittableRandom random, StringBuilder out, boolean rankedStart) {
+            long begin = System.nanoTime();
+            start();
+            int current = rankedStart ? graph.pageRank().sample(random) : random.nextInt(graph.nodeCount());
+            out.append(graph.word(current));
+            for (int i = 0; i < length; i++) {
+                if ((i & Cancellation.CHECK_MASK) == Cancellation.CHECK_MASK) {
+                    Cancellation.checkpoint();
+                }
+                int e = step(current, random);
+                if (e < 0) {
+                    break;
+                }
+                current = graph.target(e);
+                out.append(' ').append(graph.word(current));
+            }
+            out.append('\n');
+            Metrics.WALK.record(System.nanoTime() - begin);
+        }
+    }
+
+    private static int slot(int e, int mask) {
+        int h = e * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // 批量生成 count 条游走，每条至多 length 步，每行一条写入 out
+    // 使用 threads 个线程；相同的 seed 总是得到相同的输出
+    void walks(long count, int length, long seed, int threads, Writer out) throws IOException {
+        walks(count, length, seed, threads, false, out);
+    }
+
+    void walks(long count, int length, long seed, int threads, boolean rankedStart, Writer out) throws IOException {
+        if (graph.nodeCount() == 0 || count <= 0) {
+            return;
+        }
+        if (rankedStart) {
+            // 在派发之前算好，避免各线程等同一把锁
+            graph.pageRank();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        ThreadLocal<Walker> walkers = ThreadLocal.withInitial(this::walker);
+        long batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+        Iterator<Callable<String>> tasks = new Iterator<Callable<String>>() {
+            // 派发在一个线程里按批次顺序进行，split 的顺序固定；各批的随机序列互不相关
+            private final SplittableRandom root = new SplittableRandom(seed);
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < batches;
+            }
+
+            @Override
+            public Callable<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long batch = next++;
+                int size = (int) Math.min(BATCH_SIZE, count - batch * BATCH_SIZE);
+                SplittableRandom random = root.split();
+                return () -> {
+                    Walker walker = walkers.get();
+                    StringBuilder text = new StringBuilder((int) Math.min(1 << 20, (long) size * (length + 1) * 8));
+                    for (int i = 0; i < size; i++) {
+                        walker.walk(length, random, text, rankedStart);
+                    }
+                    return text.toString();
+                };
+            }
+        };
+        try {
+            OrderedBatches.run(pool, Math.max(1, threads) * 2, tasks, out::write);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package graph;
+
+// 单词与整数编号的双向字典，编号从 0 连续分配，构造后不再修改
+// 查找用开放寻址的 int 数组，不需要装箱
+final class WordDictionary {
+    private final String[] words;
+    // 存放 id + 1，0 表示空槽
+    private final int[] slots;
+
+    WordDictionary(String[] words) {
+        this.words = words;
+        int capacity = Integer.highestOneBit(Math.max(4, words.length * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < words.length; id++) {
+            int slot = mix(words[id].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    int size() {
+        return words.length;
+    }
+
+    String word(int id) {
+        return words[id];
+    }
+
+    // 返回单词的编号，不存在时返回 -1
+    int id(String word) {
+        int mask = slots.length - 1;
+        for (int slot = mix(word.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (words[entry - 1].equals(word)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // 估算占用的堆内存：槽位数组、引用数组，以及每个 String 对象和它的字节数组
+    long estimatedBytes() {
+        long bytes = 16 + 4L * slots.length + 16 + 8L * words.length;
+        for (String word : words) {
+            bytes += 40 + 16 + word.length();
+        }
+        return bytes;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
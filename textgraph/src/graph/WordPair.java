@@ -0,0 +1,12 @@
+package graph;
+
+// 一对查询单词
+final class WordPair {
+    final String word1;
+    final String word2;
+
+    WordPair(String word1, String word2) {
+        this.word1 = word1;
+        this.word2 = word2;
+    }
+}
@@ -0,0 +1,177 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 手写分词器，结果与 replaceAll("[^a-zA-Z ]", "").toLowerCase().split("\\s+") 一致
+// 空格和换行是分隔符，其它非字母字符直接丢弃（例如 "don't" -> "dont"）
+// 按字节流式处理，单词跨缓冲区也能正确拼接；重复出现的单词复用同一个 String
+// 驻留表有上限时，表外的单词可以不建 String，直接交出复用的字节缓冲区（见 TransientSink）
+final class WordTokenizer {
+
+    // 接收切分出的单词
+    interface Sink {
+        void word(String word);
+    }
+
+    // 驻留表满后，没驻留的单词不建 String，以字节形式交给它；bytes 随后会被复用，只在调用期间有效
+    interface TransientSink extends Sink {
+        void word(byte[] bytes, int length);
+    }
+
+    private final Sink sink;
+    // sink 是 TransientSink 时为它，否则为 null
+    private final TransientSink transientSink;
+    private byte[] word = new byte[64];
+    private int length;
+    // 是否已经遇到过字母或分隔符，用来还原 split 产生的开头空串
+    private boolean started;
+
+    // 单词驻留表（开放寻址），内存只和词表大小有关
+    private String[] table = new String[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+    // 驻留表的单词数上限，达到后新单词不再驻留
+    private final int maxInterned;
+
+    WordTokenizer(Sink sink) {
+        this(sink, true);
+    }
+
+    // atStart 为 false 表示从文本中间（分隔符之后）开始切分，不会产生开头空串
+    WordTokenizer(Sink sink, boolean atStart) {
+        this(sink, atStart, Integer.MAX_VALUE);
+    }
+
+    // maxInterned 限制驻留的单词数，词表无限增长时内存仍然有界
+    WordTokenizer(Sink sink, boolean atStart, int maxInterned) {
+        this.sink = sink;
+        this.transientSink = sink instanceof TransientSink ? (TransientSink) sink : null;
+        this.started = !atStart;
+        this.maxInterned = maxInterned;
+    }
+
+    // 处理 position 到 limit 之间的字节，处理完后 position 移到 limit
+    void feed(ByteBuffer buf) {
+        for (int i = buf.position(), end = buf.limit(); i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= 'a' && b <= 'z') {
+                append(b);
+            } else if (b >= 'A' && b <= 'Z') {
+                append((byte) (b + ('a' - 'A')));
+            } else if (isSeparator(b)) {
+                separator();
+            }
+        }
+        buf.position(buf.limit());
+    }
+
+    // 输入结束，输出最后一个单词；整个输入没有任何单词时与 split 一样得到一个空串
+    void finish() {
+        if (length > 0) {
+            flush();
+        } else if (!started) {
+            started = true;
+            sink.word("");
+        }
+    }
+
+    // readAllLines 按 \n、\r 断行后用空格拼接，所以三者都是分隔符
+    static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r';
+    }
+
+    private void append(byte b) {
+        if (length == word.length) {
+            word = Arrays.copyOf(word, length * 2);
+        }
+        word[length++] = b;
+        started = true;
+    }
+
+    private void separator() {
+        if (length > 0) {
+            flush();
+        } else if (!started) {
+            // 文本以分隔符开头时 split 会得到一个开头空串
+            started = true;
+            sink.word("");
+        }
+    }
+
+    private void flush() {
+        String w = intern(word, length);
+        int len = length;
+        length = 0;
+        if (w == null) {
+            transientSink.word(word, len);
+        } else {
+            sink.word(w);
+        }
+    }
+
+    // 查驻留表，没有时驻留；表满时对 TransientSink 返回 null，否则返回一个不驻留的新 String
+    private String intern(byte[] bytes, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + bytes[i];
+        }
+        int mask = table.length - 1;
+        for (int slot = mix(h) & mask; ; slot = (slot + 1) & mask) {
+            String s = table[slot];
+            if (s == null) {
+                if (size >= maxInterned && transientSink != null) {
+                    return null;
+                }
+                s = new String(bytes, 0, len, StandardCharsets.US_ASCII);
+                if (size >= maxInterned) {
+                    return s;
+                }
+                table[slot] = s;
+                hashes[slot] = h;
+                if (++size * 2 > table.length) {
+                    rehash();
+                }
+                return s;
+            }
+            if (hashes[slot] == h && sameWord(s, bytes, len)) {
+                return s;
+            }
+        }
+    }
+
+    private static boolean sameWord(String s, byte[] bytes, int len) {
+        if (s.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new String[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = oldTable[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -4,15 +4,28 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import graph.TextGraph.Graph;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
 
 public class BlackTest {
 
     private Graph graph;
+    private String filePath;
 
     @Before
-    public void setUp() {
-        // 这里传入文件路径
-        String filePath = "D:\\test\\Java\\software\\lab1\\textgraph\\src\\graph\\test.txt";
+    public void setUp() throws Exception {
+        // 测试文本与本类放在同一个包里，从类路径上找
+        filePath = Paths.get(BlackTest.class.getResource("test.txt").toURI()).toString();
         graph = TextGraph.generateGraphFromFile(filePath);
     }
 
@@ -46,4 +59,196 @@ public class BlackTest {
         assertEquals("Invalid input: Input strings must be alphabetic words.", result);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testTieBreakingMatchesOriginal() {
+        // start 到 end 经 mid、kilo、delta 的路径长度都是 2，选中的既不是最先加入的也不是字典序最小的；
+        // 期望值是改用堆之前的 O(V^2) 实现在同一张图上的输出
+        Graph ties = new Graph();
+        String[] words = "start mid end start kilo end start delta end start zeta end start zeta fin".split(" ");
+        for (int i = 0; i < words.length; i++) {
+            ties.addEdge(words[i], i + 1 < words.length ? words[i + 1] : null);
+        }
+        assertEquals("Shortest path: start -> kilo -> end with length 2",
+                TextGraph.calcShortestPath(ties, "start", "end"));
+        assertEquals("Shortest path: start -> zeta -> fin with length 3",
+                TextGraph.calcShortestPath(ties, "start", "fin"));
+        assertEquals("Shortest path: mid -> end -> start -> zeta -> fin with length 8",
+                TextGraph.calcShortestPath(ties, "mid", "fin"));
+        assertEquals("The bridge words from \"start\" to \"end\" are: zeta, kilo, delta, mid",
+                TextGraph.queryBridgeWords(ties.compact(), "start", "end", false));
+    }
+
+    @Test
+    public void testBridgeOrderMatchesOriginalAfterResize() {
+        // 12 个桥接词：原实现逐个插入的 HashSet 表长 16，整体拷贝构造的表长是 32，两者遍历顺序不同；
+        // 这些词在 start 的后继表里各占一个桶，期望值是原实现在同一段文本上的输出
+        Graph graph = new Graph();
+        String[] words = ("start at end start ak end start aq end start an end start av end start al end "
+                + "start ar end start ao end start am end start au end start ap end start as end").split(" ");
+        for (int i = 0; i < words.length; i++) {
+            graph.addEdge(words[i], i + 1 < words.length ? words[i + 1] : null);
+        }
+        assertEquals("The bridge words from \"start\" to \"end\" are: "
+                        + "aq, ar, as, at, au, av, ak, al, am, an, ao, ap",
+                TextGraph.queryBridgeWords(graph.compact(), "start", "end", false));
+    }
+
+    @Test
+    public void testGenerateGraphFromFileStreaming() {
+        Graph streamed = TextGraph.generateGraphFromFileStreaming(filePath);
+        assertEquals(graph.getAdjList(), streamed.getAdjList());
+    }
+
+    @Test
+    public void testGenerateGraphFromFileParallel() throws Exception {
+        Graph parallel = TextGraph.generateGraphFromFileParallel(filePath, 4);
+        assertEquals(graph.getAdjList(), parallel.getAdjList());
+        // 块很小时几乎每个单词都落在块边界上
+        Graph tiny = ParallelGraphBuilder.build(Paths.get(filePath), 4, 8);
+        assertEquals(graph.getAdjList(), tiny.getAdjList());
+    }
+
+    @Test
+    public void testCalcShortestPathsFrom() {
+        String result = TextGraph.calcShortestPathsFrom(graph.compact(), "still");
+        assertTrue(result.contains("Shortest path: still -> another -> in with length 3"));
+        assertEquals(graph.getAdjList().size() - 1, result.split("\n").length);
+        // 缓存了最短路树之后单次查询结果不变
+        assertEquals("Shortest path: still -> another -> in with length 3",
+                TextGraph.calcShortestPath(graph, "still", "in"));
+    }
+
+    @Test
+    public void testRandomWalksReproducible() throws Exception {
+        CompactGraph compact = graph.compact();
+        StringWriter one = new StringWriter();
+        StringWriter many = new StringWriter();
+        compact.walkEngine().walks(3000, 10, 42, 1, one);
+        compact.walkEngine().walks(3000, 10, 42, 3, many);
+        assertEquals(one.toString(), many.toString());
+        String[] walks = one.toString().split("\n");
+        assertEquals(3000, walks.length);
+        for (String walk : walks) {
+            String[] words = walk.split(" ");
+            for (int i = 0; i + 1 < words.length; i++) {
+                assertTrue(graph.getAdjList().get(words[i]).containsKey(words[i + 1]));
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        Path snapshot = Files.createTempFile("graph", ".tgs");
+        try {
+            assertTrue(TextGraph.saveSnapshot(graph.compact(), snapshot.toString()));
+            CompactGraph loaded = TextGraph.loadGraph(snapshot.toString());
+            assertEquals(graph.compact().nodeCount(), loaded.nodeCount());
+            assertEquals(graph.compact().edgeCount(), loaded.edgeCount());
+            assertEquals("Shortest path: still -> another -> in with length 3",
+                    TextGraph.calcShortestPath(loaded, "still", "in"));
+            // 跳过 CRC 校验读到的图相同
+            CompactGraph unchecked = TextGraph.loadGraph(snapshot.toString(), false);
+            assertEquals(loaded.edgeCount(), unchecked.edgeCount());
+            assertEquals("Shortest path: still -> another -> in with length 3",
+                    TextGraph.calcShortestPath(unchecked, "still", "in"));
+        } finally {
+            Files.delete(snapshot);
+        }
+    }
+
+    @Test
+    public void testSnapshotRejectsCorruptHeader() throws Exception {
+        Path snapshot = Files.createTempFile("graph", ".tgs");
+        try {
+            assertTrue(TextGraph.saveSnapshot(graph.compact(), snapshot.toString()));
+            byte[] bytes = Files.readAllBytes(snapshot);
+            // 结点数改成接近 int 上限：跳过 CRC 读取时也要在分配数组之前拒绝
+            ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE - 8);
+            Files.write(snapshot, bytes);
+            assertTrue(GraphSnapshot.isSnapshot(snapshot));
+            assertNull(TextGraph.loadGraph(snapshot.toString(), false));
+            // 版本号不对就不当作快照
+            ByteBuffer.wrap(bytes).putInt(4, GraphSnapshot.FORMAT_VERSION + 1);
+            Files.write(snapshot, bytes);
+            assertFalse(GraphSnapshot.isSnapshot(snapshot));
+        } finally {
+            Files.delete(snapshot);
+        }
+    }
+
+    @Test
+    public void testLiveGraphAppend() {
+        LiveGraph live = new LiveGraph(graph.compact());
+        CompactGraph before = live.snapshot();
+        CompactGraph after = live.append("still zebra in");
+        assertNotEquals(before.version(), after.version());
+        assertEquals(-1, before.id("zebra"));
+        assertEquals(before.nodeCount() + 1, after.nodeCount());
+        assertEquals("Shortest path: still -> zebra -> in with length 2",
+                TextGraph.calcShortestPath(after, "still", "in"));
+        // 已经拿到的旧版本不受追加影响
+        assertEquals("Shortest path: still -> another -> in with length 3",
+                TextGraph.calcShortestPath(before, "still", "in"));
+        assertTrue(TextGraph.queryBridgeWords(after, "still", "in", false).contains("zebra"));
+    }
+
+    @Test
+    public void testQueryServer() throws Exception {
+        QueryServer server = new QueryServer(new LiveGraph(graph.compact()), 2, 16, 5000);
+        int port = server.start(0);
+        try {
+            assertEquals("The bridge words from \"still\" to \"in\" are: another",
+                    httpGet("http://127.0.0.1:" + port + "/bridge?word1=still&word2=in"));
+            assertEquals("Shortest path: still -> another -> in with length 3",
+                    httpGet("http://127.0.0.1:" + port + "/path?word1=still&word2=in"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBatchQueries() throws Exception {
+        String queries = "bridge\tstill\tin\n\npath\tstill\tin\nstill kind\n";
+        StringWriter out = new StringWriter();
+        long count = BatchQueries.run(graph.compact(), new BufferedReader(new StringReader(queries)),
+                out, BatchQueries.Format.TSV, 2);
+        assertEquals(3, count);
+        assertEquals("bridge\tstill\tin\tFOUND\tanother\t\n"
+                + "path\tstill\tin\tFOUND\tstill,another,in\t3\n"
+                + "bridge\tstill\tkind\tNO_BRIDGE\t\t\n", out.toString());
+    }
+
+    @Test
+    public void testMetricsReport() {
+        CompactGraph compact = graph.compact();
+        Metrics.register(() -> compact);
+        long before = Metrics.BRIDGE.count();
+        TextGraph.findBridgeWords(compact, "still", "in");
+        assertEquals(before + 1, Metrics.BRIDGE.count());
+        String report = Metrics.report();
+        assertTrue(report.contains("nodes " + compact.nodeCount() + ", edges " + compact.edgeCount()));
+        assertTrue(report.contains("shortestPath"));
+    }
+
+    @Test
+    public void testApproximateIngest() {
+        ApproximateGraphBuilder builder = new ApproximateGraphBuilder(1 << 20, 2, 0);
+        builder.feed(ByteBuffer.wrap("a b a b a b c d".getBytes(StandardCharsets.US_ASCII)));
+        CompactGraph approximate = builder.finish();
+        // 只出现一次的 b -> c、c -> d 被剪掉
+        assertEquals(2, approximate.edgeCount());
+        assertEquals(3, approximate.weight(approximate.findEdge(approximate.id("a"), approximate.id("b"))));
+        assertEquals(2, approximate.weight(approximate.findEdge(approximate.id("b"), approximate.id("a"))));
+        assertEquals("No \"c\" in the graph!", TextGraph.calcShortestPath(approximate, "a", "c"));
+        assertTrue(builder.report().contains("edges kept 2"));
+    }
+
+    private static String httpGet(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        try (Scanner in = new Scanner(connection.getInputStream(), "UTF-8")) {
+            return in.useDelimiter("\\A").next();
+        }
+    }
+
+}
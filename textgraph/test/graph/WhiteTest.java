@@ -3,7 +3,27 @@ import org.junit.Before;
 import org.junit.Test;
 import graph.TextGraph.Graph;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 public class WhiteTest {
@@ -11,9 +31,9 @@ public class WhiteTest {
     private Graph graph;
 
     @Before
-    public void setUp() {
-        // 这里传入文件路径
-        String filePath = "D:\\test\\Java\\software\\lab1\\textgraph\\src\\graph\\test.txt";
+    public void setUp() throws Exception {
+        // 测试文本与本类放在同一个包里，从类路径上找
+        String filePath = Paths.get(WhiteTest.class.getResource("test.txt").toURI()).toString();
         graph = TextGraph.generateGraphFromFile(filePath);
     }
 
@@ -76,4 +96,308 @@ public class WhiteTest {
         String result = TextGraph.queryBridgeWords(graph, "with", "of");
         assertEquals("Failed to write DOT file with highlights!", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompactGraphMatchesAdjList() {
+        // 每个单词有唯一编号，出边按终点编号升序，权重与邻接表一致，入边是出边的转置
+        CompactGraph compact = graph.compact();
+        Map<String, Map<String, Integer>> adjList = graph.getAdjList();
+        assertEquals(adjList.size(), compact.nodeCount());
+        int edges = 0;
+        for (Map.Entry<String, Map<String, Integer>> entry : adjList.entrySet()) {
+            int u = compact.id(entry.getKey());
+            assertEquals(entry.getKey(), compact.word(u));
+            assertEquals(entry.getValue().size(), compact.edgeEnd(u) - compact.edgeStart(u));
+            for (int e = compact.edgeStart(u); e < compact.edgeEnd(u); e++) {
+                assertTrue(e == compact.edgeStart(u) || compact.target(e - 1) < compact.target(e));
+                int v = compact.target(e);
+                assertEquals(entry.getValue().get(compact.word(v)).intValue(), compact.weight(e));
+                boolean found = false;
+                for (int i = compact.inStart(v); i < compact.inEnd(v); i++) {
+                    found |= compact.source(i) == u && compact.inWeight(i) == compact.weight(e);
+                }
+                assertTrue(found);
+            }
+            edges += entry.getValue().size();
+        }
+        assertEquals(edges, compact.edgeCount());
+        assertEquals(-1, compact.id("your"));
+    }
+
+    @Test
+    public void testQueryBridgeWordsBatch() {
+        List<BridgeResult> results = TextGraph.queryBridgeWords(graph.compact(), Arrays.asList(
+                new WordPair("most", "in"), new WordPair("kind", "for"), new WordPair("your", "name")));
+        assertEquals(3, results.size());
+        assertEquals(BridgeResult.Status.FOUND, results.get(0).status);
+        assertEquals(2, results.get(0).bridges.size());
+        assertEquals(BridgeResult.Status.NO_BRIDGE, results.get(1).status);
+        assertEquals("No \"your\" and \"name\" in the graph!", results.get(2).message());
+    }
+
+    @Test
+    public void testGenerateNewText() {
+        String result = TextGraph.generateNewText(graph.compact(), "Most, in", new Random(1));
+        assertTrue(result.equals("most the in") || result.equals("most another in"));
+    }
+
+    @Test
+    public void testReachabilityIndex() {
+        // a -> b <-> c -> d，e 单独一个结点
+        Graph small = new Graph();
+        small.addEdge("a", "b");
+        small.addEdge("b", "c");
+        small.addEdge("c", "b");
+        small.addEdge("c", "d");
+        small.addEdge("e", null);
+        CompactGraph compact = small.compact();
+        ReachabilityIndex index = compact.reachability();
+        assertEquals(4, index.componentCount());
+        assertEquals(index.component(compact.id("b")), index.component(compact.id("c")));
+        assertTrue(index.reachable(compact.id("a"), compact.id("d")));
+        assertTrue(!index.reachable(compact.id("d"), compact.id("a")));
+        assertTrue(!index.reachable(compact.id("a"), compact.id("e")));
+        assertEquals("No path from d to a!", TextGraph.calcShortestPath(compact, "d", "a"));
+        assertEquals("Shortest path: a -> b -> c -> d with length 3", TextGraph.calcShortestPath(compact, "a", "d"));
+    }
+
+    @Test
+    public void testBidirectionalShortestPath() {
+        // a -> b 出现三次，权重 3；绕道 a -> c -> b 只有 2
+        Graph small = new Graph();
+        for (int i = 0; i < 3; i++) {
+            small.addEdge("a", "b");
+        }
+        small.addEdge("a", "c");
+        small.addEdge("c", "b");
+        small.addEdge("b", "d");
+        CompactGraph compact = small.compact();
+        ShortestPathEngine.Mode mode = ShortestPathEngine.Mode.BIDIRECTIONAL;
+        assertEquals("Shortest path: a -> c -> b -> d with length 3", TextGraph.calcShortestPath(compact, "a", "d", mode));
+        assertEquals("No path from d to a!", TextGraph.calcShortestPath(compact, "d", "a", mode));
+        assertEquals("No path from a to a!", TextGraph.calcShortestPath(compact, "a", "a", mode));
+        assertEquals(TextGraph.findShortestPath(graph.compact(), "still", "in").length,
+                TextGraph.findShortestPath(graph.compact(), "still", "in", mode).length);
+    }
+
+    @Test
+    public void testPageRank() {
+        // b、c、d 都指向 a，a -> e，e 没有出边，它的分数均分给所有结点
+        Graph small = new Graph();
+        small.addEdge("b", "a");
+        small.addEdge("c", "a");
+        small.addEdge("d", "a");
+        small.addEdge("a", "e");
+        small.addEdge("e", null);
+        CompactGraph compact = small.compact();
+        PageRank ranks = PageRank.compute(compact, PageRank.DAMPING, 1e-12, 200, 1);
+        PageRank parallel = PageRank.compute(compact, PageRank.DAMPING, 1e-12, 200, 3);
+        double sum = 0;
+        for (int v = 0; v < compact.nodeCount(); v++) {
+            sum += ranks.rank(v);
+            assertEquals(ranks.rank(v), parallel.rank(v), 1e-12);
+        }
+        assertEquals(1.0, sum, 1e-9);
+        int[] top = ranks.top(2);
+        assertEquals("e", compact.word(top[0]));
+        assertEquals("a", compact.word(top[1]));
+        assertEquals(ranks.rank(compact.id("b")), ranks.rank(compact.id("d")), 1e-12);
+    }
+
+    @Test
+    public void testSubgraphExtraction() {
+        // a -> b -> c -> d -> e，c -> d 出现两次
+        Graph small = new Graph();
+        small.addEdge("a", "b");
+        small.addEdge("b", "c");
+        small.addEdge("c", "d");
+        small.addEdge("c", "d");
+        small.addEdge("d", "e");
+        small.addEdge("e", null);
+        CompactGraph compact = small.compact();
+        Subgraph around = Subgraph.around(compact, new int[] {compact.id("c")}, 1, 10, 10);
+        assertEquals(3, around.nodeCount());
+        assertTrue(around.contains(compact.id("b")) && around.contains(compact.id("d")));
+        assertEquals(2, around.edgeCount());
+        Subgraph heaviest = Subgraph.heaviest(compact, 1);
+        assertEquals("c", compact.word(heaviest.sources[0]));
+        assertEquals("d", compact.word(heaviest.targets[0]));
+        assertEquals(2, heaviest.weights[0]);
+    }
+
+    @Test
+    public void testWalkBatchesAreIndependent() throws IOException {
+        // 100 个单词、每个单词 5 条随机出边；第 1 批的游走不应该在第 0 批里出现
+        Random random = new Random(7);
+        Graph big = new Graph();
+        for (int u = 0; u < 100; u++) {
+            for (int i = 0; i < 5; i++) {
+                int v = random.nextInt(100);
+                big.addEdge("w" + (char) ('a' + u / 26) + (char) ('a' + u % 26),
+                        "w" + (char) ('a' + v / 26) + (char) ('a' + v % 26));
+            }
+        }
+        StringWriter out = new StringWriter();
+        big.compact().walkEngine().walks(2 * WalkEngine.BATCH_SIZE, 20, 42, 1, out);
+        List<String> walks = Arrays.asList(out.toString().split("\n"));
+        Set<String> first = new HashSet<>(walks.subList(0, WalkEngine.BATCH_SIZE));
+        int shared = 0;
+        for (String walk : walks.subList(WalkEngine.BATCH_SIZE, walks.size())) {
+            if (first.contains(walk)) {
+                shared++;
+            }
+        }
+        assertTrue("shared walks: " + shared, shared < 8);
+    }
+
+    @Test
+    public void testWalkWithoutTables() {
+        // 别名表还没建好时的游走：每一步都沿着图里的边走，同一条边不走两次
+        CompactGraph compact = graph.compact();
+        WalkEngine.Walker walker = WalkEngine.withoutTables(compact).walker();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 50; i++) {
+            StringBuilder out = new StringBuilder();
+            walker.walk(40, random, out);
+            String[] words = out.toString().trim().split(" ");
+            Set<Integer> edges = new HashSet<>();
+            for (int j = 0; j + 1 < words.length; j++) {
+                int e = compact.findEdge(compact.id(words[j]), compact.id(words[j + 1]));
+                assertTrue(e >= 0);
+                assertTrue(edges.add(e));
+            }
+        }
+    }
+
+    @Test
+    public void testAppendedWordsStayPerVersion() {
+        // 多个版本共享追加的单词存储：旧版本看不到之后追加的单词，从旧版本分叉出的版本互不影响
+        CompactGraph base = graph.compact();
+        Graph first = new Graph();
+        first.addEdge("zebra", "yak");
+        CompactGraph v1 = base.withDelta(first);
+        Graph second = new Graph();
+        second.addEdge("zebra", "walrus");
+        CompactGraph v2 = v1.withDelta(second);
+        Graph other = new Graph();
+        other.addEdge("yak", "vole");
+        CompactGraph fork = v1.withDelta(other);
+
+        assertEquals(-1, base.id("zebra"));
+        assertEquals(-1, v1.id("walrus"));
+        assertEquals(-1, fork.id("walrus"));
+        assertEquals(-1, v2.id("vole"));
+        assertEquals(v2.id("walrus"), fork.id("vole"));
+        assertEquals("walrus", v2.word(v2.id("walrus")));
+        assertEquals("vole", fork.word(fork.id("vole")));
+        assertEquals(v1.id("yak"), fork.id("yak"));
+        assertTrue(fork.findEdge(fork.id("yak"), fork.id("vole")) >= 0);
+    }
+
+    @Test
+    public void testNewTextStream() throws IOException {
+        // a -> x -> b -> y -> c，块切得很小，跨块、跨行的单词对也要插入桥接词
+        Graph small = new Graph();
+        small.addEdge("a", "x");
+        small.addEdge("x", "b");
+        small.addEdge("b", "y");
+        small.addEdge("y", "c");
+        small.addEdge("c", null);
+        CompactGraph compact = small.compact();
+        String input = "A b\n\nb, c\n";
+        for (int threads : new int[] {1, 3}) {
+            StringWriter out = new StringWriter();
+            NewTextStream.run(compact, new StringReader(input), out, 42, threads, 2);
+            assertEquals("a x b\n\nb y c\n", out.toString());
+        }
+        // \r\n 和单独的 \r 也是换行，原样保留；块切得很小时 \r\n 会被切到两块里
+        StringWriter out = new StringWriter();
+        NewTextStream.run(compact, new StringReader("a b\r\nb\rc\r\n"), out, 42, 2, 2);
+        assertEquals("a x b\r\nb\ry c\r\n", out.toString());
+    }
+
+    @Test
+    public void testKShortestPaths() {
+        // a -> b -> d、a -> c -> d 长度都是 2，a -> e -> f -> d 长度为 3
+        Graph small = new Graph();
+        small.addEdge("a", "b");
+        small.addEdge("b", "d");
+        small.addEdge("a", "c");
+        small.addEdge("c", "d");
+        small.addEdge("a", "e");
+        small.addEdge("e", "f");
+        small.addEdge("f", "d");
+        small.addEdge("d", null);
+        CompactGraph compact = small.compact();
+        assertEquals(TextGraph.calcShortestPath(compact, "a", "d"), TextGraph.calcShortestPaths(compact, "a", "d", 1));
+        List<PathResult> paths = TextGraph.findShortestPaths(compact, "a", "d", 5);
+        assertEquals(3, paths.size());
+        assertEquals(2, paths.get(0).length);
+        assertEquals(2, paths.get(1).length);
+        assertEquals(Arrays.asList("a", "e", "f", "d"), paths.get(2).path);
+        assertEquals("1. a -> b -> d with length 2\n2. a -> c -> d with length 2",
+                TextGraph.calcAllShortestPaths(compact, "a", "d"));
+        assertEquals("Invalid input: k must be a positive integer.", TextGraph.calcShortestPaths(compact, "a", "d", 0));
+        assertEquals(PathResult.Status.INVALID_K, TextGraph.findShortestPaths(compact, "a", "d", -1).get(0).status);
+    }
+
+    @Test
+    public void testShortestPathCacheOnlyForTrees() {
+        CompactGraph compact = graph.compact();
+        long before = ShortestPathCache.SHARED.hits() + ShortestPathCache.SHARED.misses();
+        // 点对点查询（包括指定双向搜索）不查也不填缓存
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Shortest path: still -> another -> in with length 3",
+                    TextGraph.calcShortestPath(compact, "still", "in", ShortestPathEngine.Mode.BIDIRECTIONAL));
+            TextGraph.calcShortestPath(compact, "still", "in");
+        }
+        assertEquals(before, ShortestPathCache.SHARED.hits() + ShortestPathCache.SHARED.misses());
+        // 整棵树第一次计算后放入缓存，之后命中
+        ShortestPathCache cache = new ShortestPathCache(4, 1 << 20);
+        int source = compact.id("still");
+        ShortestPathTree tree = cache.tree(compact, source);
+        assertEquals(3, tree.distance(compact.id("in")));
+        assertTrue(cache.tree(compact, source) == tree);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testGraphRendererCacheAndEviction() throws Exception {
+        // 用复制文件代替 dot 命令；缓存只留一项
+        GraphRenderer renderer = new GraphRenderer(Files.createTempDirectory("render"), 1, 4, 1,
+                (dot, png) -> Files.copy(dot, png, StandardCopyOption.REPLACE_EXISTING));
+        CompletableFuture<Path> first = renderer.render("a", out -> out.append("digraph a {}"));
+        Path a = first.get();
+        assertTrue(renderer.render("a", out -> out.append("digraph a {}")) == first);
+        assertEquals(1, renderer.hits());
+        assertEquals(1, renderer.misses());
+        // 换一个 key 把 a 挤出缓存，a 的文件随之删除
+        Path b = renderer.render("b", out -> out.append("digraph b {}")).get();
+        assertFalse(Files.exists(a));
+        assertTrue(Files.exists(b));
+        assertEquals("digraph b {}", new String(Files.readAllBytes(b), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGraphRendererRejectsWhenQueueFull() throws Exception {
+        // 一个线程、队列长度 1：第一个请求在渲染，第二个排队，第三个立即失败
+        CountDownLatch release = new CountDownLatch(1);
+        GraphRenderer renderer = new GraphRenderer(Files.createTempDirectory("render"), 1, 1, 8, (dot, png) -> {
+            release.await();
+            Files.copy(dot, png, StandardCopyOption.REPLACE_EXISTING);
+        });
+        CompletableFuture<Path> running = renderer.render("a", out -> out.append("digraph a {}"));
+        CompletableFuture<Path> queued = renderer.render("b", out -> out.append("digraph b {}"));
+        CompletableFuture<Path> rejected = renderer.render("c", out -> out.append("digraph c {}"));
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        release.countDown();
+        assertTrue(Files.exists(running.get()));
+        assertTrue(Files.exists(queued.get()));
+    }
+}